@@ -0,0 +1,40 @@
+package com.github.j0rdanit0.bulk;
+
+import com.github.j0rdanit0.service.BookService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//offline entry point, e.g. "import books.csv export books.ndjson" converts or validates a seed file
+public class BookBulkTool
+{
+    public static void main( String[] args ) throws IOException
+    {
+        if ( args.length == 0 || args.length % 2 != 0 )
+        {
+            System.err.println( "Usage: BookBulkTool (import <file> | export <file>)..." );
+            System.exit( 1 );
+        }
+
+        BookService bookService = BookService.getInstance();
+        for ( int i = 0; i < args.length; i += 2 )
+        {
+            Path path = Paths.get( args[ i + 1 ] );
+            switch ( args[ i ] )
+            {
+                case "import":
+                    new BookImporter( bookService ).importFile( path );
+                    break;
+
+                case "export":
+                    new BookExporter( bookService ).exportFile( path );
+                    break;
+
+                default:
+                    System.err.println( "Unknown command: [" + args[ i ] + "]" );
+                    System.exit( 1 );
+            }
+        }
+    }
+}
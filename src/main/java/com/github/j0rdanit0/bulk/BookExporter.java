@@ -0,0 +1,63 @@
+package com.github.j0rdanit0.bulk;
+
+import com.github.j0rdanit0.service.BookService;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BookExporter
+{
+    private static final Logger logger = LoggerFactory.getLogger( BookExporter.class );
+
+    private final BookService bookService;
+
+    public BookExporter( BookService bookService )
+    {
+        this.bookService = bookService;
+    }
+
+    public long exportFile( Path path ) throws IOException
+    {
+        BookFileFormat format = BookFileFormat.fromPath( path );
+        AtomicLong rows = new AtomicLong();
+        long start = System.nanoTime();
+
+        try ( BufferedWriter writer = Files.newBufferedWriter( path, StandardCharsets.UTF_8 ) )
+        {
+            if ( format.getHeader() != null )
+            {
+                writer.write( format.getHeader() );
+                writer.write( '\n' );
+            }
+
+            bookService.forEachBook( book -> {
+                try
+                {
+                    writer.write( format.format( book ) );
+                    writer.write( '\n' );
+                    rows.incrementAndGet();
+                }
+                catch ( IOException exception )
+                {
+                    throw new UncheckedIOException( exception );
+                }
+            } );
+        }
+        catch ( UncheckedIOException exception )
+        {
+            throw exception.getCause();
+        }
+
+        long elapsedMillis = ( System.nanoTime() - start ) / 1_000_000;
+        logger.info( "Exported " + rows.get() + " rows to [" + path + "] in " + elapsedMillis + "ms" );
+
+        return rows.get();
+    }
+}
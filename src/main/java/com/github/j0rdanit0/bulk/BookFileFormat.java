@@ -0,0 +1,161 @@
+package com.github.j0rdanit0.bulk;
+
+import com.github.j0rdanit0.domain.Book;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+//one book per line in both formats, which is what lets the importer split files on line breaks.
+//CSV fields are quoted as needed, but line breaks inside a field are not supported, so CSV exports refuse to write them.
+public enum BookFileFormat
+{
+    NDJSON
+      {
+          @Override
+          public Book parse( String line )
+          {
+              JsonObject jsonObject = new JsonObject( line );
+              return toBook( jsonObject.getString( "id" ), jsonObject.getString( "name" ), jsonObject.getString( "author" ) );
+          }
+
+          @Override
+          public String format( Book book )
+          {
+              return new JsonObject()
+                .put( "id", book.getId().toString() )
+                .put( "name", book.getName() )
+                .put( "author", book.getAuthor() )
+                .encode();
+          }
+      },
+
+    CSV
+      {
+          @Override
+          public String getHeader()
+          {
+              return "id,name,author";
+          }
+
+          @Override
+          public Book parse( String line )
+          {
+              List<String> fields = splitCsv( line );
+              if ( fields.size() != 3 )
+              {
+                  throw new IllegalArgumentException( "Expected 3 fields but found " + fields.size() );
+              }
+
+              return toBook( fields.get( 0 ), fields.get( 1 ), fields.get( 2 ) );
+          }
+
+          @Override
+          public String format( Book book )
+          {
+              return book.getId() + "," + quoteCsv( book.getName() ) + "," + quoteCsv( book.getAuthor() );
+          }
+      };
+
+    public String getHeader()
+    {
+        return null;
+    }
+
+    public abstract Book parse( String line );
+
+    public abstract String format( Book book );
+
+    public static BookFileFormat fromPath( Path path )
+    {
+        String fileName = path.getFileName().toString().toLowerCase();
+        if ( fileName.endsWith( ".csv" ) )
+        {
+            return CSV;
+        }
+        else if ( fileName.endsWith( ".ndjson" ) || fileName.endsWith( ".jsonl" ) )
+        {
+            return NDJSON;
+        }
+
+        throw new IllegalArgumentException( "Unsupported file type: [" + path + "]" );
+    }
+
+    private static Book toBook( String id, String name, String author )
+    {
+        if ( name == null || author == null )
+        {
+            throw new IllegalArgumentException( "All fields are required." );
+        }
+
+        UUID bookId = Optional
+          .ofNullable( id )
+          .filter( x -> !x.isEmpty() )
+          .map( UUID::fromString )
+          .orElseGet( UUID::randomUUID );
+
+        return new Book( bookId, name, author, 0L );
+    }
+
+    private static List<String> splitCsv( String line )
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for ( int i = 0; i < line.length(); i++ )
+        {
+            char c = line.charAt( i );
+            if ( quoted )
+            {
+                if ( c == '"' && i + 1 < line.length() && line.charAt( i + 1 ) == '"' )
+                {
+                    field.append( '"' );
+                    i++;
+                }
+                else if ( c == '"' )
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    field.append( c );
+                }
+            }
+            else if ( c == '"' )
+            {
+                quoted = true;
+            }
+            else if ( c == ',' )
+            {
+                fields.add( field.toString() );
+                field.setLength( 0 );
+            }
+            else
+            {
+                field.append( c );
+            }
+        }
+
+        fields.add( field.toString() );
+        return fields;
+    }
+
+    private static String quoteCsv( String value )
+    {
+        if ( value.indexOf( '\n' ) >= 0 || value.indexOf( '\r' ) >= 0 )
+        {
+            throw new IllegalArgumentException( "Line breaks can't be written to CSV, export as NDJSON instead: [" + value + "]" );
+        }
+
+        if ( value.indexOf( ',' ) < 0 && value.indexOf( '"' ) < 0 )
+        {
+            return value;
+        }
+
+        return '"' + value.replace( "\"", "\"\"" ) + '"';
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.j0rdanit0.bulk;
+
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.service.BookService;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class BookImporter
+{
+    private static final Logger logger = LoggerFactory.getLogger( BookImporter.class );
+
+    private static final long DEFAULT_CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final int BOUNDARY_WINDOW = 64 * 1024;
+
+    private final BookService bookService;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public BookImporter( BookService bookService )
+    {
+        this( bookService, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE );
+    }
+
+    public BookImporter( BookService bookService, ForkJoinPool pool, long chunkSize )
+    {
+        if ( chunkSize <= 0 || chunkSize > Integer.MAX_VALUE / 2 )
+        {
+            throw new IllegalArgumentException( "Invalid chunk size: [" + chunkSize + "]" );
+        }
+
+        this.bookService = bookService;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResult importFile( Path path ) throws IOException
+    {
+        BookFileFormat format = BookFileFormat.fromPath( path );
+        long start = System.nanoTime();
+
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            List<Long> boundaries = findChunkBoundaries( channel, format );
+
+            ImportResult result;
+            try
+            {
+                result = pool.invoke( new ChunkTask( channel, format, boundaries, 0, boundaries.size() - 1 ) );
+            }
+            catch ( UncheckedIOException exception )
+            {
+                throw exception.getCause();
+            }
+
+            result.setElapsedNanos( System.nanoTime() - start );
+            logger.info( "Imported [" + path + "]: " + result.getRows() + " rows, " + result.getRejected() + " rejected, " +
+                         Math.round( result.getRowsPerSecond() ) + " rows/s" );
+
+            return result;
+        }
+    }
+
+    //chunks start and end on line breaks, so every record belongs to exactly one chunk
+    private List<Long> findChunkBoundaries( FileChannel channel, BookFileFormat format ) throws IOException
+    {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+
+        long position = 0;
+        if ( format.getHeader() != null && size > 0 )
+        {
+            long headerEnd = findRecordEnd( channel, 0, size );
+            if ( readLine( channel, 0, headerEnd ).equalsIgnoreCase( format.getHeader() ) )
+            {
+                position = headerEnd;
+            }
+        }
+
+        boundaries.add( position );
+        while ( position + chunkSize < size )
+        {
+            position = findRecordEnd( channel, position + chunkSize, size );
+            boundaries.add( position );
+        }
+
+        if ( position < size )
+        {
+            boundaries.add( size );
+        }
+
+        return boundaries;
+    }
+
+    private static long findRecordEnd( FileChannel channel, long position, long size ) throws IOException
+    {
+        while ( position < size )
+        {
+            MappedByteBuffer window = channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( BOUNDARY_WINDOW, size - position ) );
+            for ( int i = 0; i < window.limit(); i++ )
+            {
+                if ( window.get( i ) == '\n' )
+                {
+                    return position + i + 1;
+                }
+            }
+
+            position += window.limit();
+        }
+
+        return size;
+    }
+
+    private static String readLine( FileChannel channel, long start, long end ) throws IOException
+    {
+        MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, end - start );
+        return StandardCharsets.UTF_8.decode( buffer ).toString().trim();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ImportResult
+    {
+        private long rows;
+        private long rejected;
+        private long elapsedNanos;
+
+        public double getRowsPerSecond()
+        {
+            return elapsedNanos == 0 ? 0.0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        private ImportResult merge( ImportResult other )
+        {
+            return new ImportResult( rows + other.rows, rejected + other.rejected, 0L );
+        }
+    }
+
+    private class ChunkTask extends RecursiveTask<ImportResult>
+    {
+        private final FileChannel channel;
+        private final BookFileFormat format;
+        private final List<Long> boundaries;
+        private final int from;
+        private final int to;
+
+        private ChunkTask( FileChannel channel, BookFileFormat format, List<Long> boundaries, int from, int to )
+        {
+            this.channel = channel;
+            this.format = format;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ImportResult compute()
+        {
+            if ( to - from <= 0 )
+            {
+                return new ImportResult( 0L, 0L, 0L );
+            }
+            else if ( to - from == 1 )
+            {
+                return importChunk( boundaries.get( from ), boundaries.get( to ) );
+            }
+
+            int middle = ( from + to ) >>> 1;
+            ChunkTask left = new ChunkTask( channel, format, boundaries, from, middle );
+            ChunkTask right = new ChunkTask( channel, format, boundaries, middle, to );
+
+            left.fork();
+            return right.compute().merge( left.join() );
+        }
+
+        private ImportResult importChunk( long start, long end )
+        {
+            MappedByteBuffer buffer;
+            try
+            {
+                buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, end - start );
+            }
+            catch ( IOException exception )
+            {
+                throw new UncheckedIOException( exception );
+            }
+
+            List<Book> books = new ArrayList<>();
+            long rejected = 0;
+            byte[] line = new byte[ 256 ];
+
+            int lineStart = 0;
+            int limit = buffer.limit();
+            for ( int i = 0; i <= limit; i++ )
+            {
+                if ( i < limit && buffer.get( i ) != '\n' )
+                {
+                    continue;
+                }
+
+                int length = i - lineStart;
+                if ( length > 0 && buffer.get( i - 1 ) == '\r' )
+                {
+                    length--;
+                }
+
+                if ( length > 0 )
+                {
+                    if ( line.length < length )
+                    {
+                        line = new byte[ Math.max( length, line.length * 2 ) ];
+                    }
+
+                    //UTF-8 never uses the newline byte inside a multi-byte character, so raw byte splitting is safe
+                    buffer.position( lineStart );
+                    buffer.get( line, 0, length );
+
+                    try
+                    {
+                        books.add( format.parse( new String( line, 0, length, StandardCharsets.UTF_8 ) ) );
+                    }
+                    catch ( RuntimeException exception )
+                    {
+                        rejected++;
+                        logger.warn( "Rejected record at byte [" + ( start + lineStart ) + "]: " + exception.getMessage() );
+                    }
+                }
+
+                lineStart = i + 1;
+            }
+
+            bookService.putBooks( books );
+
+            return new ImportResult( books.size(), rejected, 0L );
+        }
+    }
+}
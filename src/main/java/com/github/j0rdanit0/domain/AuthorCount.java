@@ -0,0 +1,14 @@
+package com.github.j0rdanit0.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorCount
+{
+    private String author;
+    private long count;
+}
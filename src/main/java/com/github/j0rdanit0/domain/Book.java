@@ -3,20 +3,28 @@ package com.github.j0rdanit0.domain;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
 import io.vertx.core.json.JsonObject;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.UUID;
 
-@Data
-@NoArgsConstructor
+//immutable, so a reply or a listing can never observe a half-applied edit; updates go through toBuilder()
+@Value
+@Builder( toBuilder = true )
+@Jacksonized
+@AllArgsConstructor
 public class Book
 {
-    private UUID id = UUID.randomUUID();
+    private UUID id;
 
     private String name;
     private String author;
 
+    //the store sequence at which this version of the book was written
+    private long version;
+
     public Book( BookRequest bookRequest )
     {
         this( bookRequest.getName(), bookRequest.getAuthor() );
@@ -24,8 +32,7 @@ public class Book
 
     public Book( String name, String author )
     {
-        this.name = name;
-        this.author = author;
+        this( UUID.randomUUID(), name, author, 0L );
     }
 
     public static class Codec implements MessageCodec<Book, Book>
@@ -37,6 +44,7 @@ public class Book
             jsonObject.put( "id", book.getId().toString() );
             jsonObject.put( "name", book.getName() );
             jsonObject.put( "author", book.getAuthor() );
+            jsonObject.put( "version", book.getVersion() );
 
             String json = jsonObject.encode();
 
@@ -51,10 +59,9 @@ public class Book
             UUID id = UUID.fromString( jsonObject.getString( "id" ) );
             String name = jsonObject.getString( "name" );
             String author = jsonObject.getString( "author" );
+            long version = jsonObject.getLong( "version", 0L );
 
-            Book book = new Book( name, author );
-            book.setId( id );
-            return book;
+            return new Book( id, name, author, version );
         }
 
         @Override
@@ -0,0 +1,14 @@
+package com.github.j0rdanit0.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BookSnapshot
+{
+    private long sequence;
+    private List<Book> books;
+}
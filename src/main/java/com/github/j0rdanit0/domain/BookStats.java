@@ -0,0 +1,21 @@
+package com.github.j0rdanit0.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude( JsonInclude.Include.NON_NULL )
+public class BookStats
+{
+    private long total;
+    private long authors;
+
+    private AuthorCount author;
+    private List<AuthorCount> top;
+}
@@ -0,0 +1,43 @@
+package com.github.j0rdanit0.domain;
+
+import io.vertx.core.json.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Mutation
+{
+    public enum Type
+    {
+        PUT,
+        REMOVE
+    }
+
+    private long sequence;
+    private long timestamp;
+    private Type type;
+    private Book book;
+
+    public JsonObject toJson()
+    {
+        return new JsonObject()
+          .put( "type", "mutation" )
+          .put( "sequence", sequence )
+          .put( "timestamp", timestamp )
+          .put( "op", type.name() )
+          .put( "book", JsonObject.mapFrom( book ) );
+    }
+
+    public static Mutation fromJson( JsonObject jsonObject )
+    {
+        return new Mutation(
+          jsonObject.getLong( "sequence" ),
+          jsonObject.getLong( "timestamp" ),
+          Type.valueOf( jsonObject.getString( "op" ) ),
+          jsonObject.getJsonObject( "book" ).mapTo( Book.class )
+        );
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.j0rdanit0.eventbus;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//not thread safe: only use this from the context of the verticle that owns it
+public class RequestCoalescer
+{
+    private final Vertx vertx;
+    private final int maxWaitersPerKey;
+
+    private final Map<String, List<ReplyHandler>> inFlight = new HashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public RequestCoalescer( Vertx vertx, int maxWaitersPerKey )
+    {
+        this.vertx = vertx;
+        this.maxWaitersPerKey = maxWaitersPerKey;
+    }
+
+    public void request( String address, String key, Object body, ReplyHandler handler )
+    {
+        request( address, key, body, new DeliveryOptions(), handler );
+    }
+
+    //the key must identify everything that affects the reply, including any delivery headers
+    public void request( String address, String key, Object body, DeliveryOptions options, ReplyHandler handler )
+    {
+        requestCount.incrementAndGet();
+
+        List<ReplyHandler> waiters = inFlight.get( key );
+        if ( waiters == null )
+        {
+            List<ReplyHandler> newWaiters = new ArrayList<>();
+            newWaiters.add( handler );
+            inFlight.put( key, newWaiters );
+
+            vertx
+              .eventBus()
+              .<Buffer>request( address, body, options, result -> {
+                  inFlight.remove( key, newWaiters );
+
+                  //the first waiter is the one whose request was actually sent
+                  for ( int i = 0; i < newWaiters.size(); i++ )
+                  {
+                      newWaiters.get( i ).handle( result, i > 0 );
+                  }
+              } );
+        }
+        else if ( waiters.size() < maxWaitersPerKey )
+        {
+            coalescedCount.incrementAndGet();
+            waiters.add( handler );
+        }
+        else
+        {
+            //the key is saturated, so this request goes out on its own rather than growing the waiter list without bound
+            vertx
+              .eventBus()
+              .<Buffer>request( address, body, options, result -> handler.handle( result, false ) );
+        }
+    }
+
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    public double getCoalescingRatio()
+    {
+        long requests = getRequestCount();
+        return requests == 0 ? 0.0 : (double) getCoalescedCount() / requests;
+    }
+
+    public JsonObject getMetrics()
+    {
+        return new JsonObject()
+          .put( "requests", getRequestCount() )
+          .put( "coalesced", getCoalescedCount() )
+          .put( "ratio", getCoalescingRatio() );
+    }
+
+    @FunctionalInterface
+    public interface ReplyHandler
+    {
+        //coalesced is true when the reply belongs to another caller's request, so its delivery headers describe that request
+        void handle( AsyncResult<Message<Buffer>> result, boolean coalesced );
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.j0rdanit0.format;
+
+import com.github.j0rdanit0.domain.Book;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+//how a reply should be encoded: the negotiated format plus an optional ?fields= projection of books
+@Data
+@AllArgsConstructor
+public class Representation
+{
+    public static final List<String> BOOK_FIELDS = List.of( "id", "name", "author", "version" );
+
+    private ResponseFormat format;
+    private List<String> fields;
+
+    public Buffer encode( Object value )
+    {
+        return format.encode( fields == null ? value : project( value ) );
+    }
+
+    public String getKey()
+    {
+        return format.name() + ":" + ( fields == null ? "*" : String.join( ",", fields ) );
+    }
+
+    public DeliveryOptions addHeaders( DeliveryOptions options )
+    {
+        options.addHeader( "format", format.name() );
+        Optional.ofNullable( fields )
+                .ifPresent( x -> options.addHeader( "fields", String.join( ",", fields ) ) );
+
+        return options;
+    }
+
+    public static Representation fromHeaders( MultiMap headers )
+    {
+        ResponseFormat format = Optional
+          .ofNullable( headers.get( "format" ) )
+          .map( ResponseFormat::valueOf )
+          .orElse( ResponseFormat.JSON );
+
+        return new Representation( format, parseFields( headers.get( "fields" ) ) );
+    }
+
+    public static List<String> parseFields( String fields )
+    {
+        if ( fields == null || fields.isBlank() )
+        {
+            return null;
+        }
+
+        List<String> parsedFields = Arrays
+          .stream( fields.split( "," ) )
+          .map( String::trim )
+          .distinct()
+          .collect( Collectors.toList() );
+
+        parsedFields
+          .stream()
+          .filter( field -> !BOOK_FIELDS.contains( field ) )
+          .findFirst()
+          .ifPresent( field -> {
+              throw new IllegalArgumentException( "Unknown field: [" + field + "]" );
+          } );
+
+        return parsedFields;
+    }
+
+    private Object project( Object value )
+    {
+        if ( value instanceof Book )
+        {
+            return project( (Book) value );
+        }
+        else if ( value instanceof Collection )
+        {
+            return ( (Collection<?>) value )
+              .stream()
+              .map( this::project )
+              .collect( Collectors.toList() );
+        }
+
+        return value;
+    }
+
+    private Map<String, Object> project( Book book )
+    {
+        Map<String, Object> projection = new LinkedHashMap<>();
+        for ( String field : fields )
+        {
+            switch ( field )
+            {
+                case "id":
+                    projection.put( "id", book.getId().toString() );
+                    break;
+
+                case "name":
+                    projection.put( "name", book.getName() );
+                    break;
+
+                case "author":
+                    projection.put( "author", book.getAuthor() );
+                    break;
+
+                case "version":
+                    projection.put( "version", book.getVersion() );
+                    break;
+            }
+        }
+
+        return projection;
+    }
+}
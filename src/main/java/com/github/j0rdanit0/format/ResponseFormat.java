@@ -0,0 +1,116 @@
+package com.github.j0rdanit0.format;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.jackson.DatabindCodec;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import java.util.*;
+
+public enum ResponseFormat
+{
+    JSON( "application/json", DatabindCodec.mapper() ),
+    CBOR( "application/cbor", withTextualIds( new CBORMapper() ) ),
+    SMILE( "application/x-jackson-smile", withTextualIds( new SmileMapper() ) ),
+    MSGPACK( "application/x-msgpack", withTextualIds( new ObjectMapper( new MessagePackFactory() ) ) );
+
+    private final String contentType;
+    private final ObjectMapper mapper;
+
+    ResponseFormat( String contentType, ObjectMapper mapper )
+    {
+        this.contentType = contentType;
+        this.mapper = mapper;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public ObjectMapper getMapper()
+    {
+        return mapper;
+    }
+
+    public Buffer encode( Object value )
+    {
+        try
+        {
+            return Buffer.buffer( mapper.writeValueAsBytes( value ) );
+        }
+        catch ( JsonProcessingException exception )
+        {
+            throw new EncodeException( "Failed to encode as " + name() + ": " + exception.getMessage(), exception );
+        }
+    }
+
+    //binary generators would otherwise write UUIDs as 16 raw bytes, so ids would change type between formats and ?fields= projections
+    private static ObjectMapper withTextualIds( ObjectMapper mapper )
+    {
+        return mapper.registerModule( new SimpleModule().addSerializer( UUID.class, ToStringSerializer.instance ) );
+    }
+
+    //picks the supported media type with the highest quality; a missing header means JSON
+    public static Optional<ResponseFormat> negotiate( String accept )
+    {
+        if ( accept == null || accept.isBlank() )
+        {
+            return Optional.of( JSON );
+        }
+
+        ResponseFormat bestFormat = null;
+        double bestQuality = 0.0;
+        for ( String range : accept.split( "," ) )
+        {
+            String[] parts = range.split( ";" );
+            String mediaType = parts[ 0 ].trim().toLowerCase();
+
+            double quality = 1.0;
+            for ( int i = 1; i < parts.length; i++ )
+            {
+                String parameter = parts[ i ].trim();
+                if ( parameter.startsWith( "q=" ) )
+                {
+                    try
+                    {
+                        quality = Double.parseDouble( parameter.substring( 2 ) );
+                    }
+                    catch ( NumberFormatException exception )
+                    {
+                        quality = 0.0;
+                    }
+                }
+            }
+
+            ResponseFormat format = fromMediaType( mediaType );
+            if ( format != null && quality > bestQuality )
+            {
+                bestFormat = format;
+                bestQuality = quality;
+            }
+        }
+
+        return Optional.ofNullable( bestFormat );
+    }
+
+    private static ResponseFormat fromMediaType( String mediaType )
+    {
+        if ( mediaType.equals( "*/*" ) || mediaType.equals( "application/*" ) )
+        {
+            return JSON;
+        }
+
+        return Arrays
+          .stream( values() )
+          .filter( format -> format.contentType.equals( mediaType ) )
+          .findFirst()
+          .orElse( null );
+    }
+}
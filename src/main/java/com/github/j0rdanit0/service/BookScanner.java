@@ -0,0 +1,192 @@
+package com.github.j0rdanit0.service;
+
+import com.github.j0rdanit0.domain.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+//full scan for queries no index can answer: one fused pass over both predicates that stops as soon as the limit is met,
+//split across a fork/join pool once the catalogue is big enough for that to pay off
+public class BookScanner
+{
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 10_000;
+    private static final int DEFAULT_SEGMENT_SIZE = 2_048;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int segmentSize;
+
+    public BookScanner()
+    {
+        this( ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD, DEFAULT_SEGMENT_SIZE );
+    }
+
+    public BookScanner( ForkJoinPool pool, int parallelThreshold, int segmentSize )
+    {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.segmentSize = segmentSize;
+    }
+
+    public ScanResult scan( Collection<Book> books, String name, String author, int limit )
+    {
+        return scan( books, Function.identity(), name, author, limit );
+    }
+
+    //the resolver maps each store entry to the book it should be matched as, or null to skip it
+    public <T> ScanResult scan( Collection<T> entries, Function<T, Book> resolver, String name, String author, int limit )
+    {
+        if ( limit <= 0 )
+        {
+            return new ScanResult( new ArrayList<>(), 0L, 0L );
+        }
+
+        Query<T> query = new Query<>( resolver, Needle.of( name ), Needle.of( author ), new AtomicInteger( limit ) );
+
+        Spliterator<T> spliterator = entries.spliterator();
+        if ( entries.size() < parallelThreshold )
+        {
+            return query.scan( spliterator );
+        }
+
+        return pool.invoke( new SegmentTask<>( query, spliterator ) );
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ScanResult
+    {
+        private List<Book> books;
+        private long scanned;
+        private long matched;
+
+        private ScanResult merge( ScanResult other )
+        {
+            books.addAll( other.books );
+            return new ScanResult( books, scanned + other.scanned, matched + other.matched );
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Query<T>
+    {
+        private final Function<T, Book> resolver;
+        private final Needle name;
+        private final Needle author;
+
+        //shared by every segment, so the scan as a whole never returns more than the limit
+        private final AtomicInteger remaining;
+
+        private ScanResult scan( Spliterator<T> spliterator )
+        {
+            List<Book> books = new ArrayList<>();
+            long[] scanned = new long[ 1 ];
+
+            boolean more = true;
+            while ( more && remaining.get() > 0 )
+            {
+                more = spliterator.tryAdvance( entry -> {
+                    scanned[ 0 ]++;
+                    Book book = resolver.apply( entry );
+                    if ( book != null && matches( book ) && remaining.getAndDecrement() > 0 )
+                    {
+                        books.add( book );
+                    }
+                } );
+            }
+
+            return new ScanResult( books, scanned[ 0 ], books.size() );
+        }
+
+        private boolean matches( Book book )
+        {
+            return ( name == null || name.isFoundIn( book.getName() ) ) &&
+                   ( author == null || author.isFoundIn( book.getAuthor() ) );
+        }
+    }
+
+    //a case-insensitive search string, folded once per query instead of once per book
+    private static class Needle
+    {
+        private final char[] upper;
+        private final char[] lower;
+
+        private Needle( String value )
+        {
+            upper = new char[ value.length() ];
+            lower = new char[ value.length() ];
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                upper[ i ] = Character.toUpperCase( value.charAt( i ) );
+                lower[ i ] = Character.toLowerCase( upper[ i ] );
+            }
+        }
+
+        private static Needle of( String value )
+        {
+            return value == null ? null : new Needle( value );
+        }
+
+        private boolean isFoundIn( String text )
+        {
+            if ( text == null )
+            {
+                return false;
+            }
+
+            int last = text.length() - upper.length;
+            outer:
+            for ( int i = 0; i <= last; i++ )
+            {
+                for ( int j = 0; j < upper.length; j++ )
+                {
+                    char c = text.charAt( i + j );
+                    if ( c != upper[ j ] && c != lower[ j ] && Character.toUpperCase( c ) != upper[ j ] )
+                    {
+                        continue outer;
+                    }
+                }
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    private class SegmentTask<T> extends RecursiveTask<ScanResult>
+    {
+        private final Query<T> query;
+        private final Spliterator<T> spliterator;
+
+        private SegmentTask( Query<T> query, Spliterator<T> spliterator )
+        {
+            this.query = query;
+            this.spliterator = spliterator;
+        }
+
+        @Override
+        protected ScanResult compute()
+        {
+            Spliterator<T> split = spliterator.estimateSize() > segmentSize ? spliterator.trySplit() : null;
+            if ( split == null )
+            {
+                return query.scan( spliterator );
+            }
+
+            SegmentTask<T> left = new SegmentTask<>( query, split );
+            left.fork();
+
+            ScanResult right = new SegmentTask<>( query, spliterator ).compute();
+            return left.join().merge( right );
+        }
+    }
+}
@@ -1,61 +1,416 @@
 package com.github.j0rdanit0.service;
 
+import com.github.j0rdanit0.domain.AuthorCount;
 import com.github.j0rdanit0.domain.Book;
 import com.github.j0rdanit0.domain.BookRequest;
+import com.github.j0rdanit0.domain.BookSnapshot;
+import com.github.j0rdanit0.domain.BookStats;
+import com.github.j0rdanit0.domain.Mutation;
+import lombok.AllArgsConstructor;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 public class BookService
 {
-    public static final Map<UUID, Book> BOOKS = new HashMap<>();
+    private static final BookService INSTANCE = new BookService();
 
-    public static List<Book> getBooks( String name, String author )
+    //every book maps to its newest version, which links back to the older versions that open reads may still need.
+    //writers are serialized by the monitor and publish by bumping the volatile sequence; readers never lock.
+    //the map itself is only ever replaced whole, when a replica has to rebuild its store from a snapshot.
+    private volatile Map<UUID, Version> versions = new ConcurrentHashMap<>();
+    private final Deque<Version> tombstones = new ArrayDeque<>();
+
+    //versions that still link to an older one, in sequence order; each link is cut once no open read can need it
+    private final Deque<Version> superseded = new ArrayDeque<>();
+    private final Set<OpenRead> openReads = ConcurrentHashMap.newKeySet();
+
+    //aggregates are kept up to date under the write lock, so stats never have to scan the store
+    private long total;
+    private final Map<String, AuthorCount> authorCounts = new HashMap<>();
+    private final NavigableSet<AuthorCount> rankedAuthors = new TreeSet<>(
+      Comparator.comparingLong( AuthorCount::getCount ).reversed().thenComparing( AuthorCount::getAuthor )
+    );
+
+    private final BookScanner scanner = new BookScanner();
+
+    private final List<Consumer<Mutation>> mutationListeners = new CopyOnWriteArrayList<>();
+    private final List<LongConsumer> sequenceListeners = new CopyOnWriteArrayList<>();
+
+    private volatile long sequence;
+
+    public static BookService getInstance()
+    {
+        return INSTANCE;
+    }
+
+    public List<Book> getBooks( String name, String author )
+    {
+        return scanBooks( name, author, Integer.MAX_VALUE ).getBooks();
+    }
+
+    public BookScanner.ScanResult scanBooks( String name, String author, int limit )
+    {
+        return read( ( store, snapshot ) -> scanner.scan( store.values(), version -> visible( version, snapshot ), name, author, limit ) );
+    }
+
+    public synchronized Book createBook( BookRequest bookRequest )
+    {
+        Book book = new Book( UUID.randomUUID(), bookRequest.getName(), bookRequest.getAuthor(), sequence + 1 );
+        commit( Mutation.Type.PUT, book );
+
+        return book;
+    }
+
+    public Book getBook( UUID id )
     {
-        List<Book> books = new ArrayList<>( BOOKS.values() );
+        return read( ( store, snapshot ) -> visible( store.get( id ), snapshot ) );
+    }
 
-        Optional.ofNullable( name )
-                .ifPresent( x -> books.removeIf( book -> !book.getName().toUpperCase().contains( name.toUpperCase() ) ) );
+    //walks one consistent snapshot without copying it, so exports stay in constant memory regardless of catalogue size
+    public void forEachBook( Consumer<Book> action )
+    {
+        read( ( store, snapshot ) -> {
+            store
+              .values()
+              .forEach( version -> Optional
+                .ofNullable( visible( version, snapshot ) )
+                .ifPresent( action ) );
 
-        Optional.ofNullable( author )
-                .ifPresent( x -> books.removeIf( book -> !book.getAuthor().toUpperCase().contains( author.toUpperCase() ) ) );
+            return null;
+        } );
+    }
 
-        return books;
+    public synchronized void putBooks( Collection<Book> books )
+    {
+        books.forEach( book -> commit( Mutation.Type.PUT, book.toBuilder().version( sequence + 1 ).build() ) );
     }
 
-    public static Book createBook( BookRequest bookRequest )
+    public synchronized Book editBook( UUID id, BookRequest bookRequest )
     {
-        Book book = new Book( bookRequest );
-        book.setId( UUID.randomUUID() );
+        Book current = getLatest( id );
+        if ( current == null )
+        {
+            return null;
+        }
+
+        Book book = current
+          .toBuilder()
+          .name( Optional.ofNullable( bookRequest.getName() ).orElse( current.getName() ) )
+          .author( Optional.ofNullable( bookRequest.getAuthor() ).orElse( current.getAuthor() ) )
+          .version( sequence + 1 )
+          .build();
 
-        BOOKS.put( book.getId(), book );
+        commit( Mutation.Type.PUT, book );
 
         return book;
     }
 
-    public static Book getBook( UUID id )
+    public synchronized Book removeBook( UUID id )
+    {
+        Book current = getLatest( id );
+        if ( current != null )
+        {
+            commit( Mutation.Type.REMOVE, current );
+        }
+
+        return current;
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public BookSnapshot getSnapshot()
     {
-        return BOOKS.get( id );
+        return read( ( store, snapshot ) -> {
+            List<Book> books = new ArrayList<>();
+            store
+              .values()
+              .forEach( version -> Optional
+                .ofNullable( visible( version, snapshot ) )
+                .ifPresent( books::add ) );
+
+            return new BookSnapshot( snapshot, books );
+        } );
     }
 
-    public static Book editBook( UUID id, BookRequest bookRequest )
+    public synchronized boolean applyMutation( Mutation mutation )
     {
-        Book book = BOOKS.get( id );
-        if ( book != null )
+        if ( mutation.getSequence() <= sequence )
         {
-            Optional.ofNullable( bookRequest.getName() )
-                    .ifPresent( book::setName );
+            return false;
+        }
 
-            Optional.ofNullable( bookRequest.getAuthor() )
-                    .ifPresent( book::setAuthor );
+        Book book = mutation.getBook();
+        write( book.getId(), mutation.getType() == Mutation.Type.PUT ? book : null, mutation.getSequence() );
 
-            BOOKS.put( id, book );
+        advance( mutation.getSequence() );
+        vacuum();
+        return true;
+    }
+
+    public synchronized void applySnapshot( BookSnapshot snapshot )
+    {
+        long snapshotSequence = snapshot.getSequence();
+        if ( snapshotSequence == sequence )
+        {
+            //the same point in the primary's history, which is what a primary without writes since we last synced sends
+            return;
         }
 
-        return book;
+        if ( snapshotSequence < sequence )
+        {
+            replaceStore( snapshot );
+            return;
+        }
+
+        Set<UUID> ids = new HashSet<>();
+        snapshot.getBooks().forEach( book -> {
+            ids.add( book.getId() );
+            write( book.getId(), book, snapshotSequence );
+        } );
+
+        new ArrayList<>( versions.entrySet() )
+          .stream()
+          .filter( entry -> !ids.contains( entry.getKey() ) && entry.getValue().book != null )
+          .forEach( entry -> write( entry.getKey(), null, snapshotSequence ) );
+
+        advance( snapshotSequence );
+        vacuum();
+    }
+
+    public synchronized BookStats getStats( String author, Integer top )
+    {
+        AuthorCount authorCount = Optional
+          .ofNullable( author )
+          .map( x -> copyOf( authorCounts.getOrDefault( author, new AuthorCount( author, 0L ) ) ) )
+          .orElse( null );
+
+        List<AuthorCount> topAuthors = Optional
+          .ofNullable( top )
+          .map( limit -> rankedAuthors
+            .stream()
+            .limit( limit )
+            .map( BookService::copyOf )
+            .collect( Collectors.toList() ) )
+          .orElse( null );
+
+        return new BookStats( total, authorCounts.size(), authorCount, topAuthors );
+    }
+
+    public void addMutationListener( Consumer<Mutation> listener )
+    {
+        mutationListeners.add( listener );
+    }
+
+    public void removeMutationListener( Consumer<Mutation> listener )
+    {
+        mutationListeners.remove( listener );
+    }
+
+    public void addSequenceListener( LongConsumer listener )
+    {
+        sequenceListeners.add( listener );
+    }
+
+    public void removeSequenceListener( LongConsumer listener )
+    {
+        sequenceListeners.remove( listener );
+    }
+
+    //the primary's history restarted below ours, so there is nothing consistent to layer the snapshot on.
+    //the new store is built off to the side and published with one write, so readers see either all of the old one or all of the new one
+    private void replaceStore( BookSnapshot snapshot )
+    {
+        long snapshotSequence = snapshot.getSequence();
+
+        Map<UUID, Version> rebuilt = new ConcurrentHashMap<>();
+        snapshot.getBooks().forEach( book -> rebuilt.put( book.getId(), new Version( book.getId(), snapshotSequence, book, null ) ) );
+
+        //aggregates are only read under the monitor, so rebuilding them in place is never seen half done
+        tombstones.clear();
+        superseded.clear();
+        authorCounts.clear();
+        rankedAuthors.clear();
+        total = 0;
+        rebuilt.values().forEach( version -> {
+            countAuthor( version.book.getAuthor(), 1 );
+            total++;
+        } );
+
+        //published before the lower sequence, so a read that picks up the new sequence also picks up the new store
+        versions = rebuilt;
+        advance( snapshotSequence );
+    }
+
+    private <T> T read( Reader<T> reader )
+    {
+        //registering before settling on a sequence means a concurrent vacuum either sees this read,
+        //or has already published a sequence at least as new as the one this read ends up using
+        OpenRead openRead = new OpenRead( sequence );
+        openReads.add( openRead );
+        openRead.sequence = sequence;
+
+        //the store is taken once, after the sequence, and used for the whole read
+        Map<UUID, Version> store = versions;
+
+        try
+        {
+            return reader.read( store, openRead.sequence );
+        }
+        finally
+        {
+            openReads.remove( openRead );
+        }
+    }
+
+    private Book getLatest( UUID id )
+    {
+        Version head = versions.get( id );
+        return head == null ? null : head.book;
+    }
+
+    private void commit( Mutation.Type type, Book book )
+    {
+        long next = sequence + 1;
+        write( book.getId(), type == Mutation.Type.PUT ? book : null, next );
+
+        Mutation mutation = new Mutation( next, System.currentTimeMillis(), type, book );
+        mutationListeners.forEach( listener -> listener.accept( mutation ) );
+
+        advance( next );
+        vacuum();
+    }
+
+    //installs a new head version, which stays invisible to readers until the sequence is advanced to it; a null book is a removal
+    private void write( UUID id, Book book, long sequence )
+    {
+        Version head = versions.get( id );
+        Version version = new Version( id, sequence, book, head );
+        versions.put( id, version );
+        if ( head != null )
+        {
+            superseded.addLast( version );
+        }
+
+        Optional.ofNullable( head )
+                .map( previous -> previous.book )
+                .ifPresent( previous -> {
+                    countAuthor( previous.getAuthor(), -1 );
+                    total--;
+                } );
+
+        if ( book == null )
+        {
+            tombstones.addLast( version );
+        }
+        else
+        {
+            countAuthor( book.getAuthor(), 1 );
+            total++;
+        }
+    }
+
+    private void advance( long sequence )
+    {
+        this.sequence = sequence;
+        sequenceListeners.forEach( listener -> listener.accept( sequence ) );
+    }
+
+    //runs on every write, so versions pinned by a long read are released by the first write after it closes, whichever books they belong to
+    private void vacuum()
+    {
+        long oldest = sequence;
+        for ( OpenRead openRead : openReads )
+        {
+            oldest = Math.min( oldest, openRead.sequence );
+        }
+
+        //no read can get past a version at or below the oldest open read's sequence, so whatever it links to is unreachable
+        while ( !superseded.isEmpty() && superseded.peekFirst().sequence <= oldest )
+        {
+            superseded.removeFirst().previous = null;
+        }
+
+        while ( !tombstones.isEmpty() && tombstones.peekFirst().sequence <= oldest )
+        {
+            Version tombstone = tombstones.removeFirst();
+            versions.remove( tombstone.id, tombstone );
+        }
+    }
+
+    private static Book visible( Version version, long sequence )
+    {
+        for ( Version candidate = version; candidate != null; candidate = candidate.previous )
+        {
+            if ( candidate.sequence <= sequence )
+            {
+                return candidate.book;
+            }
+        }
+
+        return null;
+    }
+
+    private void countAuthor( String author, long delta )
+    {
+        if ( author == null )
+        {
+            return;
+        }
+
+        //the ranking is ordered by count, so an entry has to leave the set before its count changes
+        AuthorCount authorCount = authorCounts.get( author );
+        if ( authorCount == null )
+        {
+            authorCount = new AuthorCount( author, 0L );
+        }
+        else
+        {
+            rankedAuthors.remove( authorCount );
+        }
+
+        authorCount.setCount( authorCount.getCount() + delta );
+        if ( authorCount.getCount() > 0 )
+        {
+            authorCounts.put( author, authorCount );
+            rankedAuthors.add( authorCount );
+        }
+        else
+        {
+            authorCounts.remove( author );
+        }
+    }
+
+    private static AuthorCount copyOf( AuthorCount authorCount )
+    {
+        return new AuthorCount( authorCount.getAuthor(), authorCount.getCount() );
+    }
+
+    @AllArgsConstructor
+    private static class Version
+    {
+        private final UUID id;
+        private final long sequence;
+        private final Book book;
+        private volatile Version previous;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T>
+    {
+        T read( Map<UUID, Version> store, long sequence );
     }
 
-    public static Book removeBook( UUID id )
+    @AllArgsConstructor
+    private static class OpenRead
     {
-        return BOOKS.remove( id );
+        private volatile long sequence;
     }
 }
@@ -0,0 +1,145 @@
+package com.github.j0rdanit0.trace;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+//timings for one HTTP request, carried across the event bus in message headers.
+//nanoTime values are only comparable within one JVM, which holds because the listener consumers are local.
+@Getter
+public class Trace
+{
+    public static final String ID_HEADER = "traceId";
+    public static final String SENT_AT_HEADER = "trace.sentAt";
+    public static final String QUEUE_HEADER = "trace.queue";
+    public static final String WAIT_HEADER = "trace.wait";
+    public static final String SERVICE_HEADER = "trace.service";
+    public static final String SERIALIZE_HEADER = "trace.serialize";
+
+    private final String id = UUID.randomUUID().toString();
+    private final long timestamp = System.currentTimeMillis();
+    private final long startedAt = System.nanoTime();
+    private final String method;
+    private final String path;
+
+    private final Map<String, Long> spans = new LinkedHashMap<>();
+    private long lastMark = startedAt;
+    private long sentAt;
+
+    private int statusCode;
+    private long totalNanos;
+
+    public Trace( String method, String path )
+    {
+        this.method = method;
+        this.path = path;
+    }
+
+    public DeliveryOptions addHeaders( DeliveryOptions options )
+    {
+        //everything up to handing the request to the event bus counts as parsing the request
+        mark( "parse" );
+        sentAt = lastMark;
+
+        return options
+          .addHeader( ID_HEADER, id )
+          .addHeader( SENT_AT_HEADER, String.valueOf( sentAt ) );
+    }
+
+    public void received( MultiMap headers, boolean coalesced )
+    {
+        long now = System.nanoTime();
+        long roundTrip = now - sentAt;
+
+        //a coalesced request only waited on someone else's; that request's listener timings started before this one was sent
+        if ( coalesced )
+        {
+            spans.merge( "coalesced", roundTrip, Long::sum );
+            lastMark = now;
+            return;
+        }
+
+        //failures carry no headers, so a listener that failed (404, or a read-your-writes timeout) can't say where the time went
+        if ( headers == null || headers.get( SERVICE_HEADER ) == null )
+        {
+            spans.merge( "unattributed", roundTrip, Long::sum );
+            lastMark = now;
+            return;
+        }
+
+        long listenerTime = 0;
+        listenerTime += span( "queue", headers.get( QUEUE_HEADER ) );
+        listenerTime += span( "wait", headers.get( WAIT_HEADER ) );
+        listenerTime += span( "service", headers.get( SERVICE_HEADER ) );
+        listenerTime += span( "serialize", headers.get( SERIALIZE_HEADER ) );
+
+        //whatever the listener did account for, the rest was spent delivering the reply back
+        spans.merge( "reply", Math.max( 0L, roundTrip - listenerTime ), Long::sum );
+        lastMark = now;
+    }
+
+    public void finish( int statusCode )
+    {
+        mark( "write" );
+        this.statusCode = statusCode;
+        this.totalNanos = lastMark - startedAt;
+    }
+
+    public String toServerTiming()
+    {
+        String timings = spans
+          .entrySet()
+          .stream()
+          .map( span -> span.getKey() + ";dur=" + toMillis( span.getValue() ) )
+          .collect( Collectors.joining( ", " ) );
+
+        String total = "total;dur=" + toMillis( System.nanoTime() - startedAt );
+        return timings.isEmpty() ? total : timings + ", " + total;
+    }
+
+    public JsonObject toJson()
+    {
+        JsonObject jsonSpans = new JsonObject();
+        spans.forEach( ( name, nanos ) -> jsonSpans.put( name, toMillis( nanos ) ) );
+
+        return new JsonObject()
+          .put( "id", id )
+          .put( "timestamp", timestamp )
+          .put( "method", method )
+          .put( "path", path )
+          .put( "statusCode", statusCode )
+          .put( "total", toMillis( totalNanos ) )
+          .put( "spans", jsonSpans );
+    }
+
+    private void mark( String span )
+    {
+        long now = System.nanoTime();
+        spans.merge( span, now - lastMark, Long::sum );
+        lastMark = now;
+    }
+
+    private long span( String span, String nanos )
+    {
+        return Optional
+          .ofNullable( nanos )
+          .map( Long::parseLong )
+          .map( value -> {
+              spans.merge( span, value, Long::sum );
+              return value;
+          } )
+          .orElse( 0L );
+    }
+
+    private static double toMillis( long nanos )
+    {
+        return Math.round( nanos / 1_000.0 ) / 1_000.0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.j0rdanit0.trace;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+//fixed-size ring of the most recent slow traces; not thread safe, so only use it from the owning verticle's context
+public class TraceRing
+{
+    private final JsonObject[] traces;
+    private int next;
+    private int size;
+
+    public TraceRing( int capacity )
+    {
+        traces = new JsonObject[ capacity ];
+    }
+
+    public void add( Trace trace )
+    {
+        if ( traces.length == 0 )
+        {
+            return;
+        }
+
+        traces[ next ] = trace.toJson();
+        next = ( next + 1 ) % traces.length;
+        size = Math.min( size + 1, traces.length );
+    }
+
+    public JsonArray toJson()
+    {
+        JsonArray jsonArray = new JsonArray();
+        for ( int i = 1; i <= size; i++ )
+        {
+            jsonArray.add( traces[ ( next - i + traces.length ) % traces.length ] );
+        }
+
+        return jsonArray;
+    }
+}
@@ -1,24 +1,114 @@
 package com.github.j0rdanit0.verticle;
 
+import com.github.j0rdanit0.bulk.BookImporter;
 import com.github.j0rdanit0.domain.Book;
 import com.github.j0rdanit0.domain.BookRequest;
+import com.github.j0rdanit0.domain.BookStats;
+import com.github.j0rdanit0.format.Representation;
+import com.github.j0rdanit0.service.BookScanner;
 import com.github.j0rdanit0.service.BookService;
+import com.github.j0rdanit0.trace.Trace;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
-import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
+import lombok.AllArgsConstructor;
 
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongConsumer;
 
 public class BookListener extends AbstractVerticle
 {
     private final Logger logger = LoggerFactory.getLogger( BookListener.class );
 
+    private final BookService bookService;
+
+    //reads that asked for a sequence this store has not applied yet (read-your-writes against a replica)
+    private final Queue<PendingRead> pendingReads = new ConcurrentLinkedQueue<>();
+    private LongConsumer sequenceListener;
+
+    private boolean readOnly;
+    private long readYourWritesTimeout;
+
+    public BookListener()
+    {
+        this( BookService.getInstance() );
+    }
+
+    public BookListener( BookService bookService )
+    {
+        this.bookService = bookService;
+    }
+
     @Override
-    public void start()
+    public void start( Promise<Void> promise )
+    {
+        readOnly = "replica".equals( config().getString( "replicationRole" ) );
+        readYourWritesTimeout = config().getLong( "readYourWritesTimeout", 5_000L );
+
+        Context context = vertx.getOrCreateContext();
+        sequenceListener = sequence -> {
+            if ( !pendingReads.isEmpty() )
+            {
+                context.runOnContext( v -> releasePendingReads( sequence ) );
+            }
+        };
+        bookService.addSequenceListener( sequenceListener );
+
+        String seedFile = config().getString( "seedFile" );
+        if ( seedFile == null )
+        {
+            registerConsumers();
+            promise.complete();
+        }
+        else if ( readOnly )
+        {
+            //seeded rows would take local sequence numbers that clash with the primary's stream; replicas get their books from the primary
+            promise.fail( new IllegalStateException( "A read-only replica can't be seeded from a file, seed the primary instead." ) );
+        }
+        else
+        {
+            //bulk loads straight into the store, so seeding a node doesn't replay every book through the event bus.
+            //consumers are only registered once it is done, so no request ever sees a half-seeded store
+            vertx.<BookImporter.ImportResult>executeBlocking(
+              blocking -> {
+                  try
+                  {
+                      blocking.complete( new BookImporter( bookService ).importFile( Paths.get( seedFile ) ) );
+                  }
+                  catch ( Exception exception )
+                  {
+                      blocking.fail( exception );
+                  }
+              },
+              false,
+              result -> {
+                  if ( result.succeeded() )
+                  {
+                      registerConsumers();
+                      promise.complete();
+                  }
+                  else
+                  {
+                      logger.error( "Unable to import seed file [" + seedFile + "]", result.cause() );
+                      promise.fail( result.cause() );
+                  }
+              } );
+        }
+    }
+
+    private void registerConsumers()
     {
         EventBus bus = vertx
           .eventBus()
@@ -30,38 +120,194 @@ public class BookListener extends AbstractVerticle
         bus.localConsumer( "get.book", this::getBook );
         bus.localConsumer( "edit.book", this::editBook );
         bus.localConsumer( "remove.book", this::removeBook );
+        bus.localConsumer( "get.stats", this::getStats );
+    }
+
+    @Override
+    public void stop()
+    {
+        bookService.removeSequenceListener( sequenceListener );
     }
 
     private void getBooks( Message<BookRequest> message )
     {
         logger.info( "Get books (listener)" );
         BookRequest request = message.body();
-        message.reply( Json.encodeToBuffer( BookService.getBooks( request.getName(), request.getAuthor() ) ) );
+        int limit = Optional
+          .ofNullable( message.headers().get( "limit" ) )
+          .map( Integer::parseInt )
+          .orElse( Integer.MAX_VALUE );
+
+        whenCaughtUp( message, waited -> {
+            long started = System.nanoTime();
+            BookScanner.ScanResult result = bookService.scanBooks( request.getName(), request.getAuthor(), limit );
+            logger.info( "Scanned " + result.getScanned() + " books, matched " + result.getMatched() + " (listener)" );
+
+            reply( message, started, waited, result.getBooks(), new DeliveryOptions()
+              .addHeader( "scanned", String.valueOf( result.getScanned() ) )
+              .addHeader( "matched", String.valueOf( result.getMatched() ) ) );
+        } );
     }
 
     private void createBook( Message<BookRequest> message )
     {
         logger.info( "Create book [" + message.body() + "] (listener)" );
-        message.reply( Json.encodeToBuffer( BookService.createBook( message.body() ) ) );
+        whenWritable( message, () -> {
+            long started = System.nanoTime();
+            Book book = bookService.createBook( message.body() );
+            reply( message, started, book );
+        } );
     }
 
     private void getBook( Message<String> message )
     {
         logger.info( "Get book (listener)" );
-        message.reply( Json.encodeToBuffer( BookService.getBook( UUID.fromString( message.body() ) ) ) );
+        whenCaughtUp( message, waited -> {
+            long started = System.nanoTime();
+            Book book = bookService.getBook( UUID.fromString( message.body() ) );
+            reply( message, started, waited, book );
+        } );
     }
 
     private void editBook( Message<JsonObject> message )
     {
         logger.info( "Edit book (listener)" );
-        JsonObject bookRequest = message.body().getJsonObject( "bookRequest" );
-        BookRequest request = new BookRequest( bookRequest.getString( "name" ), bookRequest.getString( "author" ) );
-        message.reply( Json.encodeToBuffer( BookService.editBook( UUID.fromString( message.body().getString( "id" ) ), request ) ) );
+        whenWritable( message, () -> {
+            JsonObject bookRequest = message.body().getJsonObject( "bookRequest" );
+            BookRequest request = new BookRequest( bookRequest.getString( "name" ), bookRequest.getString( "author" ) );
+            long started = System.nanoTime();
+            Book book = bookService.editBook( UUID.fromString( message.body().getString( "id" ) ), request );
+            reply( message, started, book );
+        } );
     }
 
     private void removeBook( Message<String> message )
     {
         logger.info( "Remove book (listener)" );
-        message.reply( Json.encodeToBuffer( BookService.removeBook( UUID.fromString( message.body() ) ) ) );
+        whenWritable( message, () -> {
+            long started = System.nanoTime();
+            Book book = bookService.removeBook( UUID.fromString( message.body() ) );
+            reply( message, started, book );
+        } );
+    }
+
+    private void getStats( Message<JsonObject> message )
+    {
+        logger.info( "Get stats (listener)" );
+        JsonObject request = message.body();
+        whenCaughtUp( message, waited -> {
+            long started = System.nanoTime();
+            BookStats stats = bookService.getStats( request.getString( "author" ), request.getInteger( "top" ) );
+            reply( message, started, waited, stats );
+        } );
+    }
+
+    private void reply( Message<?> message, long started, Object body )
+    {
+        reply( message, started, 0L, body );
+    }
+
+    private void reply( Message<?> message, long started, long waited, Object body )
+    {
+        reply( message, started, waited, body, new DeliveryOptions() );
+    }
+
+    //started is taken right before the service call that produced the body, which must return just before this is called;
+    //waited is how long the read was held back for read-your-writes, which is reported apart from event bus queueing
+    private void reply( Message<?> message, long started, long waited, Object body, DeliveryOptions options )
+    {
+        long executed = System.nanoTime();
+        if ( body == null )
+        {
+            message.fail( 404, "Book not found." );
+        }
+        else
+        {
+            //encoded here, once, in whatever format the router negotiated with the client
+            Representation representation = Representation.fromHeaders( message.headers() );
+            Buffer buffer = representation.encode( body );
+            long serialized = System.nanoTime();
+
+            Optional
+              .ofNullable( message.headers().get( Trace.SENT_AT_HEADER ) )
+              .map( Long::parseLong )
+              .ifPresent( sentAt -> options
+                .addHeader( Trace.QUEUE_HEADER, String.valueOf( started - sentAt - waited ) )
+                .addHeader( Trace.SERVICE_HEADER, String.valueOf( executed - started ) )
+                .addHeader( Trace.SERIALIZE_HEADER, String.valueOf( serialized - executed ) ) );
+
+            if ( waited > 0 )
+            {
+                options.addHeader( Trace.WAIT_HEADER, String.valueOf( waited ) );
+            }
+
+            message.reply( buffer, options.addHeader( "sequence", String.valueOf( bookService.getSequence() ) ) );
+        }
+    }
+
+    private void whenWritable( Message<?> message, Runnable action )
+    {
+        if ( readOnly )
+        {
+            logger.warn( "Writes are not accepted by a read-only replica." );
+            message.fail( 405, "Writes are not accepted by a read-only replica." );
+        }
+        else
+        {
+            action.run();
+        }
+    }
+
+    //the action gets how long, in nanoseconds, the read had to wait for the sequence it asked for
+    private void whenCaughtUp( Message<?> message, LongConsumer action )
+    {
+        long minSequence = Optional
+          .ofNullable( message.headers().get( "minSequence" ) )
+          .map( Long::parseLong )
+          .orElse( 0L );
+
+        if ( bookService.getSequence() >= minSequence )
+        {
+            action.accept( 0L );
+        }
+        else
+        {
+            PendingRead pendingRead = new PendingRead( minSequence, action, System.nanoTime(), 0L );
+            pendingRead.timerId = vertx.setTimer( readYourWritesTimeout, id -> {
+                if ( pendingReads.remove( pendingRead ) )
+                {
+                    logger.warn( "Timed out waiting for sequence [" + minSequence + "]" );
+                    message.fail( 503, "Sequence [" + minSequence + "] has not been applied yet." );
+                }
+            } );
+            pendingReads.add( pendingRead );
+
+            //the sequence may have advanced between the check above and the read being queued
+            releasePendingReads( bookService.getSequence() );
+        }
+    }
+
+    private void releasePendingReads( long sequence )
+    {
+        Iterator<PendingRead> iterator = pendingReads.iterator();
+        while ( iterator.hasNext() )
+        {
+            PendingRead pendingRead = iterator.next();
+            if ( pendingRead.minSequence <= sequence )
+            {
+                iterator.remove();
+                vertx.cancelTimer( pendingRead.timerId );
+                pendingRead.action.accept( System.nanoTime() - pendingRead.queuedAt );
+            }
+        }
+    }
+
+    @AllArgsConstructor
+    private static class PendingRead
+    {
+        private final long minSequence;
+        private final LongConsumer action;
+        private final long queuedAt;
+        private long timerId;
     }
 }
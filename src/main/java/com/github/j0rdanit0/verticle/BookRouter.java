@@ -1,33 +1,51 @@
 package com.github.j0rdanit0.verticle;
 
 import com.github.j0rdanit0.domain.BookRequest;
+import com.github.j0rdanit0.eventbus.RequestCoalescer;
+import com.github.j0rdanit0.format.Representation;
+import com.github.j0rdanit0.format.ResponseFormat;
+import com.github.j0rdanit0.trace.Trace;
+import com.github.j0rdanit0.trace.TraceRing;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
-import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.function.Function;
 
 public class BookRouter extends AbstractVerticle
 {
     private static final Logger logger = LoggerFactory.getLogger( BookRouter.class );
 
+    private RequestCoalescer coalescer;
+
+    private long slowTraceThresholdNanos;
+    private TraceRing slowTraces;
+
     @Override
     public void start( Promise<Void> promise )
     {
+        coalescer = new RequestCoalescer( vertx, vertx.getOrCreateContext().config().getInteger( "coalesceMaxWaiters", 64 ) );
+        slowTraceThresholdNanos = TimeUnit.MILLISECONDS.toNanos( vertx.getOrCreateContext().config().getLong( "slowTraceThresholdMillis", 500L ) );
+        slowTraces = new TraceRing( vertx.getOrCreateContext().config().getInteger( "slowTraceCapacity", 100 ) );
+
         vertx
           .createHttpServer()
           .requestHandler( getRouter() )
@@ -50,6 +68,11 @@ public class BookRouter extends AbstractVerticle
     {
         Router router = Router.router( vertx );
 
+        //first, so that body parsing is part of every trace
+        router
+          .route()
+          .handler( this::startTrace );
+
         router
           .get( buildRequestURI() )
           .handler( this::getBooks );
@@ -60,6 +83,11 @@ public class BookRouter extends AbstractVerticle
           .handler( BodyHandler.create().setBodyLimit( requestBodyLimit ) )
           .handler( this::createBook );
 
+        //must be registered ahead of the :id route, which would otherwise claim it
+        router
+          .get( buildRequestURI( "_stats" ) )
+          .handler( this::getStats );
+
         router
           .get( buildRequestURI( ":id" ) )
           .handler( this::getBook );
@@ -73,6 +101,18 @@ public class BookRouter extends AbstractVerticle
           .delete( buildRequestURI( ":id" ) )
           .handler( this::removeBook );
 
+        router
+          .get( buildAdminURI( "coalescing" ) )
+          .handler( this::getCoalescingMetrics );
+
+        router
+          .get( buildAdminURI( "replication" ) )
+          .handler( this::getReplicationStatus );
+
+        router
+          .get( buildAdminURI( "traces" ) )
+          .handler( this::getSlowTraces );
+
         return router;
     }
 
@@ -83,14 +123,56 @@ public class BookRouter extends AbstractVerticle
                String.join( "/", pathParts );
     }
 
+    public String buildAdminURI( String... pathParts )
+    {
+        return vertx.getOrCreateContext().config().getString( "apiBase", "" ) +
+               "/admin/" +
+               String.join( "/", pathParts );
+    }
+
+    private void startTrace( RoutingContext context )
+    {
+        Trace trace = new Trace( context.request().method().name(), context.request().path() );
+        context.put( "trace", trace );
+
+        //the write span can't be part of the header it is timing, so it only shows up in the slow trace ring
+        if ( context.request().headers().contains( "X-Server-Timing" ) )
+        {
+            context.addHeadersEndHandler( v -> context.response().putHeader( "Server-Timing", trace.toServerTiming() ) );
+        }
+
+        context.addBodyEndHandler( v -> {
+            trace.finish( context.response().getStatusCode() );
+            if ( trace.getTotalNanos() >= slowTraceThresholdNanos )
+            {
+                logger.warn( "Slow request [" + trace.toJson().encode() + "]" );
+                slowTraces.add( trace );
+            }
+        } );
+
+        context.next();
+    }
+
     private void getBooks( RoutingContext context )
     {
         logger.info( "Get books (router)" );
         BookRequest request = new BookRequest( context.request().getParam( "name" ), context.request().getParam( "author" ) );
 
-        vertx
-          .eventBus()
-          .<Buffer>request( "get.books", request, result -> handleEventBusReplyByArray( result, context.response() ) );
+        doWithPositiveParam( context, "limit", limit -> doWithRepresentation( context, representation -> doWithMinSequence( context, minSequence -> {
+            String key = new JsonObject()
+              .put( "name", request.getName() )
+              .put( "author", request.getAuthor() )
+              .put( "limit", limit )
+              .put( "minSequence", minSequence )
+              .put( "representation", representation.getKey() )
+              .encode();
+
+            DeliveryOptions options = buildOptions( context, representation, minSequence );
+            Optional.ofNullable( limit )
+                    .ifPresent( x -> options.addHeader( "limit", String.valueOf( limit ) ) );
+
+            coalescer.request( "get.books", "get.books:" + key, request, options, ( result, coalesced ) -> handleEventBusReply( result, coalesced, context, representation ) );
+        } ) ), "Unable to get books" );
     }
 
     private void createBook( RoutingContext context )
@@ -108,20 +190,21 @@ public class BookRouter extends AbstractVerticle
         }
         else
         {
-            vertx
-              .eventBus()
-              .<Buffer>request( "create.book", bookRequest, result -> handleEventBusReplyByObject( result, context.response() ) );
+            doWithRepresentation( context, representation -> {
+                vertx
+                  .eventBus()
+                  .<Buffer>request( "create.book", bookRequest, buildOptions( context, representation, 0L ), result -> handleEventBusReply( result, false, context, representation ) );
+            } );
         }
     }
 
     private void getBook( RoutingContext context )
     {
         logger.info( "Get book (router)" );
-        doWithPathId( context, id -> {
-            vertx
-              .eventBus()
-              .<Buffer>request( "get.book", id.toString(), result -> handleEventBusReplyByObject( result, context.response() ) );
-        }, "Unable to get book" );
+        doWithPathId( context, id -> doWithRepresentation( context, representation -> doWithMinSequence( context, minSequence -> {
+            String key = "get.book:" + id + ":" + minSequence + ":" + representation.getKey();
+            coalescer.request( "get.book", key, id.toString(), buildOptions( context, representation, minSequence ), ( result, coalesced ) -> handleEventBusReply( result, coalesced, context, representation ) );
+        } ) ), "Unable to get book" );
     }
 
     private void editBook( RoutingContext context )
@@ -146,9 +229,11 @@ public class BookRouter extends AbstractVerticle
                     .put( "name", bookRequest.getName() )
                     .put( "author", bookRequest.getAuthor() ) );
 
-                vertx
-                  .eventBus()
-                  .<Buffer>request( "edit.book", message, result -> handleEventBusReplyByObject( result, context.response() ) );
+                doWithRepresentation( context, representation -> {
+                    vertx
+                      .eventBus()
+                      .<Buffer>request( "edit.book", message, buildOptions( context, representation, 0L ), result -> handleEventBusReply( result, false, context, representation ) );
+                } );
             }
         }, "Unable to edit book [" + bookRequest + "]" );
     }
@@ -157,36 +242,115 @@ public class BookRouter extends AbstractVerticle
     {
         logger.info( "Remove book (router)" );
 
-        doWithPathId( context, id -> {
+        doWithPathId( context, id -> doWithRepresentation( context, representation -> {
             vertx
               .eventBus()
-              .<Buffer>request( "remove.book", id.toString(), result -> handleEventBusReplyByObject( result, context.response() ) );
-        }, "Unable to remove book" );
+              .<Buffer>request( "remove.book", id.toString(), buildOptions( context, representation, 0L ), result -> handleEventBusReply( result, false, context, representation ) );
+        } ), "Unable to remove book" );
+    }
+
+    private void getStats( RoutingContext context )
+    {
+        logger.info( "Get stats (router)" );
+        String author = context.request().getParam( "author" );
+
+        doWithPositiveParam( context, "top", top -> doWithRepresentation( context, representation -> doWithMinSequence( context, minSequence -> {
+            JsonObject request = new JsonObject()
+              .put( "author", author )
+              .put( "top", top );
+
+            String key = request
+              .copy()
+              .put( "minSequence", minSequence )
+              .put( "representation", representation.getKey() )
+              .encode();
+
+            coalescer.request( "get.stats", "get.stats:" + key, request, buildOptions( context, representation, minSequence ), ( result, coalesced ) -> handleEventBusReply( result, coalesced, context, representation ) );
+        } ) ), "Unable to get stats" );
+    }
+
+    private void getCoalescingMetrics( RoutingContext context )
+    {
+        context
+          .response()
+          .putHeader( "Content-Type", "application/json" )
+          .end( coalescer.getMetrics().encode() );
     }
 
-    private void handleEventBusReplyByArray( AsyncResult<Message<Buffer>> result, HttpServerResponse response )
+    private void getSlowTraces( RoutingContext context )
     {
-        handleEventBusReply( result, response, Buffer::toJsonArray );
+        context
+          .response()
+          .putHeader( "Content-Type", "application/json" )
+          .end( slowTraces.toJson().encode() );
     }
 
-    private void handleEventBusReplyByObject( AsyncResult<Message<Buffer>> result, HttpServerResponse response )
+    private void getReplicationStatus( RoutingContext context )
     {
-        handleEventBusReply( result, response, Buffer::toJsonObject );
+        vertx
+          .eventBus()
+          .<JsonObject>request( "replication.status", null, result -> {
+              if ( result.succeeded() )
+              {
+                  context
+                    .response()
+                    .putHeader( "Content-Type", "application/json" )
+                    .end( result.result().body().encode() );
+              }
+              else
+              {
+                  context
+                    .response()
+                    .setStatusCode( 404 )
+                    .end( "Replication is not enabled." );
+              }
+          } );
     }
 
-    private void handleEventBusReply( AsyncResult<Message<Buffer>> result, HttpServerResponse response, Function<Buffer, Object> encoder )
+    private DeliveryOptions buildOptions( RoutingContext context, Representation representation, long minSequence )
     {
+        Trace trace = context.get( "trace" );
+        DeliveryOptions options = trace.addHeaders( representation.addHeaders( new DeliveryOptions() ) );
+        if ( minSequence > 0 )
+        {
+            options.addHeader( "minSequence", String.valueOf( minSequence ) );
+        }
+
+        return options;
+    }
+
+    private void handleEventBusReply( AsyncResult<Message<Buffer>> result, boolean coalesced, RoutingContext context, Representation representation )
+    {
+        Trace trace = context.get( "trace" );
+        trace.received( result.succeeded() ? result.result().headers() : null, coalesced );
+
+        HttpServerResponse response = context.response();
         if ( result.succeeded() )
         {
-            Buffer body = result.result().body();
-            if ( body.toString().equals( "null" ) )
-            {
-                response.setStatusCode( 404 ).end();
-            }
-            else
-            {
-                response.end( Json.encode( encoder.apply( body ) ) );
-            }
+            MultiMap headers = result.result().headers();
+            Optional
+              .ofNullable( headers.get( "sequence" ) )
+              .ifPresent( sequence -> response.putHeader( "X-Sequence", sequence ) );
+
+            //scan statistics are only present on listings
+            Optional
+              .ofNullable( headers.get( "scanned" ) )
+              .ifPresent( scanned -> response
+                .putHeader( "X-Scanned", scanned )
+                .putHeader( "X-Matched", headers.get( "matched" ) ) );
+
+            //the listener already encoded the reply, and coalesced waiters all share this same buffer
+            response
+              .putHeader( "Content-Type", representation.getFormat().getContentType() )
+              .end( result.result().body() );
+        }
+        else if ( result.cause() instanceof ReplyException && ( (ReplyException) result.cause() ).failureType() == ReplyFailure.RECIPIENT_FAILURE )
+        {
+            ReplyException exception = (ReplyException) result.cause();
+            logger.warn( exception.getMessage() );
+            response
+              .setStatusCode( exception.failureCode() )
+              .end( exception.getMessage() );
         }
         else
         {
@@ -195,6 +359,90 @@ public class BookRouter extends AbstractVerticle
         }
     }
 
+    private void doWithPositiveParam( RoutingContext context, String name, Consumer<Integer> paramConsumer, String errorMessage )
+    {
+        Optional<String> requestParam = Optional.ofNullable( context.request().getParam( name ) );
+
+        Integer param;
+        try
+        {
+            param = requestParam.map( Integer::parseInt ).orElse( null );
+        }
+        catch ( NumberFormatException exception )
+        {
+            param = -1;
+        }
+
+        if ( param != null && param < 1 )
+        {
+            errorMessage += ", invalid " + name + ": [" + requestParam.get() + "]";
+            logger.warn( errorMessage );
+            context
+              .response()
+              .setStatusCode( 400 )
+              .end( errorMessage );
+            return;
+        }
+
+        paramConsumer.accept( param );
+    }
+
+    private void doWithRepresentation( RoutingContext context, Consumer<Representation> representationConsumer )
+    {
+        Optional<ResponseFormat> format = ResponseFormat.negotiate( context.request().getHeader( "Accept" ) );
+        if ( format.isEmpty() )
+        {
+            String errorMessage = "Unsupported Accept: [" + context.request().getHeader( "Accept" ) + "]";
+            logger.warn( errorMessage );
+            context
+              .response()
+              .setStatusCode( 406 )
+              .end( errorMessage );
+            return;
+        }
+
+        List<String> fields;
+        try
+        {
+            fields = Representation.parseFields( context.request().getParam( "fields" ) );
+        }
+        catch ( IllegalArgumentException exception )
+        {
+            String errorMessage = "Invalid fields, " + exception.getMessage();
+            logger.warn( errorMessage );
+            context
+              .response()
+              .setStatusCode( 400 )
+              .end( errorMessage );
+            return;
+        }
+
+        representationConsumer.accept( new Representation( format.get(), fields ) );
+    }
+
+    private void doWithMinSequence( RoutingContext context, Consumer<Long> minSequenceConsumer )
+    {
+        Optional<String> requestMinSequence = Optional.ofNullable( context.request().getHeader( "X-Min-Sequence" ) );
+
+        long minSequence;
+        try
+        {
+            minSequence = requestMinSequence.map( Long::parseLong ).orElse( 0L );
+        }
+        catch ( NumberFormatException exception )
+        {
+            String errorMessage = "Invalid X-Min-Sequence: [" + requestMinSequence.get() + "]";
+            logger.warn( errorMessage );
+            context
+              .response()
+              .setStatusCode( 400 )
+              .end( errorMessage );
+            return;
+        }
+
+        minSequenceConsumer.accept( minSequence );
+    }
+
     private void doWithPathId( RoutingContext context, Consumer<UUID> idConsumer, String errorMessage )
     {
         Optional<String> requestId = Optional.ofNullable( context.pathParam( "id" ) );
@@ -0,0 +1,309 @@
+package com.github.j0rdanit0.verticle;
+
+import com.github.j0rdanit0.domain.BookSnapshot;
+import com.github.j0rdanit0.domain.Mutation;
+import com.github.j0rdanit0.service.BookService;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ReplicationPrimary extends AbstractVerticle
+{
+    private static final Logger logger = LoggerFactory.getLogger( ReplicationPrimary.class );
+
+    private final BookService bookService;
+
+    private final Deque<Mutation> backlog = new ArrayDeque<>();
+    private final Map<NetSocket, Follower> followers = new HashMap<>();
+
+    private Context context;
+    private Consumer<Mutation> mutationListener;
+    private int backlogLimit;
+    private int batchSize;
+    private long drainTimeout;
+
+    public ReplicationPrimary()
+    {
+        this( BookService.getInstance() );
+    }
+
+    public ReplicationPrimary( BookService bookService )
+    {
+        this.bookService = bookService;
+    }
+
+    @Override
+    public void start( Promise<Void> promise )
+    {
+        backlogLimit = config().getInteger( "replicationBacklog", 10_000 );
+        batchSize = config().getInteger( "replicationBatchSize", 1_000 );
+        drainTimeout = config().getLong( "replicationDrainTimeoutMillis", 30_000L );
+
+        //mutations are published from the listener's thread while holding the store lock, so they are queued here in sequence order
+        context = vertx.getOrCreateContext();
+        mutationListener = mutation -> context.runOnContext( v -> broadcast( mutation ) );
+        bookService.addMutationListener( mutationListener );
+
+        vertx.setPeriodic( config().getLong( "replicationHeartbeatMillis", 1_000L ), id -> heartbeat() );
+
+        vertx
+          .eventBus()
+          .localConsumer( "replication.status", this::getStatus );
+
+        vertx
+          .createNetServer()
+          .connectHandler( this::handleFollower )
+          .listen( config().getInteger( "replicationPort", 9090 ), result -> {
+              if ( result.succeeded() )
+              {
+                  logger.info( "Replication primary listening on port [" + result.result().actualPort() + "]" );
+                  promise.complete();
+              }
+              else
+              {
+                  promise.fail( result.cause() );
+              }
+          } );
+    }
+
+    @Override
+    public void stop()
+    {
+        bookService.removeMutationListener( mutationListener );
+    }
+
+    private void handleFollower( NetSocket socket )
+    {
+        logger.info( "Follower connected [" + socket.remoteAddress() + "]" );
+
+        socket.handler( RecordParser.newDelimited( "\n", record -> subscribe( socket, record.toJsonObject() ) ) );
+        socket.closeHandler( v -> {
+            logger.info( "Follower disconnected [" + socket.remoteAddress() + "]" );
+            followers.remove( socket );
+        } );
+    }
+
+    private void subscribe( NetSocket socket, JsonObject request )
+    {
+        long sequence = request.getLong( "sequence", 0L );
+        Follower follower = new Follower( socket, sequence );
+        followers.put( socket, follower );
+
+        Mutation oldest = backlog.peekFirst();
+        if ( oldest != null && oldest.getSequence() <= sequence + 1 && sequence <= backlog.peekLast().getSequence() )
+        {
+            logger.info( "Catching up follower from sequence [" + sequence + "]" );
+            catchUp( follower );
+        }
+        else
+        {
+            logger.info( "Sending snapshot to follower at sequence [" + sequence + "]" );
+            sendSnapshot( follower );
+        }
+    }
+
+    private void sendSnapshot( Follower follower )
+    {
+        //collecting the snapshot walks the whole store, so it is kept off the event loop
+        vertx.<BookSnapshot>executeBlocking( blocking -> blocking.complete( bookService.getSnapshot() ), false, result -> {
+            if ( result.failed() )
+            {
+                logger.error( "Unable to build snapshot for follower [" + follower.socket.remoteAddress() + "]", result.cause() );
+                follower.socket.close();
+                return;
+            }
+
+            BookSnapshot snapshot = result.result();
+            JsonObject start = new JsonObject()
+              .put( "type", "snapshot.start" )
+              .put( "sequence", snapshot.getSequence() );
+            JsonObject end = new JsonObject()
+              .put( "type", "snapshot.end" )
+              .put( "sequence", snapshot.getSequence() );
+
+            //one book per line, encoded only as the socket asks for more
+            Iterator<JsonObject> records = Stream
+              .concat(
+                Stream.of( start ),
+                Stream.concat(
+                  snapshot.getBooks().stream().map( book -> new JsonObject().put( "type", "snapshot.book" ).put( "book", JsonObject.mapFrom( book ) ) ),
+                  Stream.of( end ) ) )
+              .iterator();
+
+            stream( follower, records, () -> {
+                follower.sentSequence = snapshot.getSequence();
+                catchUp( follower );
+            } );
+        } );
+    }
+
+    //replays the backlog past what the follower has been sent, repeating until nothing new arrived in the meantime
+    private void catchUp( Follower follower )
+    {
+        follower.live = false;
+
+        List<Mutation> pending = backlog
+          .stream()
+          .filter( mutation -> mutation.getSequence() > follower.sentSequence )
+          .collect( Collectors.toList() );
+
+        if ( pending.isEmpty() )
+        {
+            follower.live = true;
+            return;
+        }
+
+        if ( pending.get( 0 ).getSequence() != follower.sentSequence + 1 )
+        {
+            //the backlog moved on while the follower was behind; reconnecting gets it a fresh snapshot
+            logger.warn( "Follower [" + follower.socket.remoteAddress() + "] fell out of the backlog, resubscribing" );
+            follower.socket.close();
+            return;
+        }
+
+        long last = pending.get( pending.size() - 1 ).getSequence();
+        Iterator<JsonObject> records = pending
+          .stream()
+          .map( Mutation::toJson )
+          .iterator();
+
+        stream( follower, records, () -> {
+            follower.sentSequence = last;
+            catchUp( follower );
+        } );
+    }
+
+    //writes records in bounded batches, yielding the event loop between batches and pausing while the socket is backed up
+    private void stream( Follower follower, Iterator<JsonObject> records, Runnable done )
+    {
+        if ( followers.get( follower.socket ) != follower )
+        {
+            return;
+        }
+
+        int written = 0;
+        while ( records.hasNext() )
+        {
+            if ( follower.socket.writeQueueFull() )
+            {
+                waitForDrain( follower, () -> stream( follower, records, done ) );
+                return;
+            }
+
+            if ( written == batchSize )
+            {
+                context.runOnContext( v -> stream( follower, records, done ) );
+                return;
+            }
+
+            write( follower.socket, records.next() );
+            written++;
+        }
+
+        done.run();
+    }
+
+    private void waitForDrain( Follower follower, Runnable resume )
+    {
+        long timerId = vertx.setTimer( drainTimeout, id -> {
+            //only a follower that stays backed up is dropped; it will reconnect and catch up from the backlog or a snapshot
+            logger.warn( "Dropping follower [" + follower.socket.remoteAddress() + "] that has not drained for [" + drainTimeout + "] ms" );
+            follower.socket.close();
+        } );
+
+        follower.socket.drainHandler( v -> {
+            follower.socket.drainHandler( null );
+            vertx.cancelTimer( timerId );
+            resume.run();
+        } );
+    }
+
+    private void broadcast( Mutation mutation )
+    {
+        backlog.addLast( mutation );
+        while ( backlog.size() > backlogLimit )
+        {
+            backlog.removeFirst();
+        }
+
+        JsonObject jsonObject = mutation.toJson();
+        new ArrayList<>( followers.values() )
+          .stream()
+          .filter( follower -> follower.live && mutation.getSequence() > follower.sentSequence )
+          .forEach( follower -> {
+              if ( follower.socket.writeQueueFull() )
+              {
+                  //the mutation is in the backlog, so the follower picks it up from there once its socket drains
+                  follower.live = false;
+                  waitForDrain( follower, () -> catchUp( follower ) );
+              }
+              else
+              {
+                  write( follower.socket, jsonObject );
+                  follower.sentSequence = mutation.getSequence();
+              }
+          } );
+    }
+
+    private void heartbeat()
+    {
+        JsonObject jsonObject = new JsonObject()
+          .put( "type", "heartbeat" )
+          .put( "sequence", backlog.isEmpty() ? bookService.getSequence() : backlog.peekLast().getSequence() )
+          .put( "timestamp", System.currentTimeMillis() );
+
+        followers
+          .values()
+          .stream()
+          .filter( follower -> follower.live && !follower.socket.writeQueueFull() )
+          .forEach( follower -> write( follower.socket, jsonObject ) );
+    }
+
+    private void write( NetSocket socket, JsonObject jsonObject )
+    {
+        socket.write( jsonObject.toBuffer().appendString( "\n" ) );
+    }
+
+    private void getStatus( Message<Object> message )
+    {
+        message.reply( new JsonObject()
+          .put( "role", "primary" )
+          .put( "sequence", bookService.getSequence() )
+          .put( "followers", followers.size() )
+          .put( "backlog", backlog.size() ) );
+    }
+
+    private static class Follower
+    {
+        private final NetSocket socket;
+
+        //the last sequence written to the socket; mutations after it are replayed from the backlog
+        private long sentSequence;
+
+        //live followers get mutations as they are broadcast, the rest are still catching up
+        private boolean live;
+
+        private Follower( NetSocket socket, long sentSequence )
+        {
+            this.socket = socket;
+            this.sentSequence = sentSequence;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.j0rdanit0.verticle;
+
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.domain.BookSnapshot;
+import com.github.j0rdanit0.domain.Mutation;
+import com.github.j0rdanit0.service.BookService;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReplicationReplica extends AbstractVerticle
+{
+    private static final Logger logger = LoggerFactory.getLogger( ReplicationReplica.class );
+
+    private final BookService bookService;
+
+    private NetClient netClient;
+    private NetSocket socket;
+    private boolean stopped;
+
+    //a snapshot arrives as a stream of books between its start and end records
+    private List<Book> snapshotBooks;
+
+    //lag is measured on this node's clock only: how long ago the replica last had everything the primary had announced
+    private long primarySequence;
+    private long caughtUpAt;
+    private long heartbeatAt;
+
+    public ReplicationReplica()
+    {
+        this( BookService.getInstance() );
+    }
+
+    public ReplicationReplica( BookService bookService )
+    {
+        this.bookService = bookService;
+    }
+
+    @Override
+    public void start()
+    {
+        netClient = vertx.createNetClient();
+        caughtUpAt = System.currentTimeMillis();
+
+        vertx
+          .eventBus()
+          .localConsumer( "replication.status", this::getStatus );
+
+        connect();
+    }
+
+    @Override
+    public void stop()
+    {
+        stopped = true;
+        netClient.close();
+    }
+
+    private void connect()
+    {
+        String host = config().getString( "replicationHost", "localhost" );
+        int port = config().getInteger( "replicationPort", 9090 );
+
+        netClient.connect( port, host, result -> {
+            if ( result.succeeded() )
+            {
+                logger.info( "Connected to replication primary [" + host + ":" + port + "]" );
+                socket = result.result();
+                socket.handler( RecordParser.newDelimited( "\n", this::handleRecord ) );
+                socket.closeHandler( v -> {
+                    socket = null;
+                    snapshotBooks = null;
+                    reconnect();
+                } );
+
+                JsonObject subscribe = new JsonObject()
+                  .put( "type", "subscribe" )
+                  .put( "sequence", bookService.getSequence() );
+                socket.write( subscribe.toBuffer().appendString( "\n" ) );
+            }
+            else
+            {
+                logger.warn( "Unable to connect to replication primary [" + host + ":" + port + "]" );
+                reconnect();
+            }
+        } );
+    }
+
+    private void reconnect()
+    {
+        if ( !stopped )
+        {
+            vertx.setTimer( config().getLong( "replicationReconnectMillis", 1_000L ), id -> connect() );
+        }
+    }
+
+    private void handleRecord( Buffer record )
+    {
+        JsonObject jsonObject = record.toJsonObject();
+        switch ( jsonObject.getString( "type" ) )
+        {
+            case "snapshot.start":
+                logger.info( "Receiving snapshot at sequence [" + jsonObject.getLong( "sequence" ) + "]" );
+                snapshotBooks = new ArrayList<>();
+                break;
+
+            case "snapshot.book":
+                snapshotBooks.add( jsonObject.getJsonObject( "book" ).mapTo( Book.class ) );
+                break;
+
+            case "snapshot.end":
+                BookSnapshot snapshot = new BookSnapshot( jsonObject.getLong( "sequence" ), snapshotBooks );
+                snapshotBooks = null;
+                logger.info( "Applying snapshot of [" + snapshot.getBooks().size() + "] books at sequence [" + snapshot.getSequence() + "]" );
+                bookService.applySnapshot( snapshot );
+                primarySequence = Math.max( primarySequence, snapshot.getSequence() );
+                checkCaughtUp();
+                break;
+
+            case "mutation":
+                Mutation mutation = Mutation.fromJson( jsonObject );
+                if ( mutation.getSequence() > bookService.getSequence() + 1 )
+                {
+                    //a gap means the stream can't be trusted any more; reconnecting resubscribes from the last applied sequence
+                    logger.warn( "Replication gap before sequence [" + mutation.getSequence() + "], resubscribing" );
+                    socket.close();
+                }
+                else if ( bookService.applyMutation( mutation ) )
+                {
+                    primarySequence = Math.max( primarySequence, mutation.getSequence() );
+                    checkCaughtUp();
+                }
+                break;
+
+            case "heartbeat":
+                heartbeatAt = System.currentTimeMillis();
+                primarySequence = jsonObject.getLong( "sequence" );
+                checkCaughtUp();
+                break;
+
+            default:
+                logger.warn( "Unknown replication record [" + jsonObject + "]" );
+        }
+    }
+
+    private void checkCaughtUp()
+    {
+        if ( bookService.getSequence() >= primarySequence )
+        {
+            caughtUpAt = System.currentTimeMillis();
+        }
+    }
+
+    private void getStatus( Message<Object> message )
+    {
+        long appliedSequence = bookService.getSequence();
+        long now = System.currentTimeMillis();
+
+        message.reply( new JsonObject()
+          .put( "role", "replica" )
+          .put( "connected", socket != null )
+          .put( "appliedSequence", appliedSequence )
+          .put( "primarySequence", primarySequence )
+          .put( "sequenceLag", Math.max( 0L, primarySequence - appliedSequence ) )
+          .put( "lagMillis", appliedSequence >= primarySequence ? 0L : now - caughtUpAt )
+          .put( "heartbeatAgeMillis", heartbeatAt == 0 ? null : now - heartbeatAt ) );
+    }
+}
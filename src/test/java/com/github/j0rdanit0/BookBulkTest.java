@@ -0,0 +1,116 @@
+package com.github.j0rdanit0;
+
+import com.github.j0rdanit0.bulk.BookExporter;
+import com.github.j0rdanit0.bulk.BookImporter;
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.service.BookService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BookBulkTest
+{
+    //a tiny chunk size forces the importer to split even small test files across many fork/join tasks
+    private static final long CHUNK_SIZE = 128;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testImportNdjson() throws IOException
+    {
+        Path file = tempDir.resolve( "books.ndjson" );
+        List<String> lines = IntStream
+          .range( 0, 1_000 )
+          .mapToObj( i -> "{\"id\":\"" + UUID.randomUUID() + "\",\"name\":\"Book " + i + "\",\"author\":\"Author " + i % 10 + "\"}" )
+          .collect( Collectors.toList() );
+        lines.add( "not json" );
+        Files.write( file, lines );
+
+        BookService bookService = new BookService();
+        BookImporter.ImportResult result = new BookImporter( bookService, ForkJoinPool.commonPool(), CHUNK_SIZE ).importFile( file );
+
+        assertThat( result.getRows(), is( 1_000L ) );
+        assertThat( result.getRejected(), is( 1L ) );
+        assertThat( bookService.getBooks( null, null ).size(), is( 1_000 ) );
+        assertThat( bookService.getStats( "Author 3", null ).getAuthor().getCount(), is( 100L ) );
+    }
+
+    @Test
+    public void testImportCsv() throws IOException
+    {
+        Path file = tempDir.resolve( "books.csv" );
+        Files.write( file, List.of(
+          "id,name,author",
+          UUID.randomUUID() + ",The Hobbit,J. R. R. Tolkien",
+          ",\"The Lion, the Witch, and the Wardrobe\",C. S. Lewis",
+          ",\"The \"\"Quoted\"\" Book\",Someone\r"
+        ) );
+
+        BookService bookService = new BookService();
+        BookImporter.ImportResult result = new BookImporter( bookService, ForkJoinPool.commonPool(), CHUNK_SIZE ).importFile( file );
+
+        assertThat( result.getRows(), is( 3L ) );
+        assertThat( bookService.getBooks( "Wardrobe", "C. S. Lewis" ).get( 0 ).getName(), is( "The Lion, the Witch, and the Wardrobe" ) );
+        assertThat( bookService.getBooks( null, "Someone" ).get( 0 ).getName(), is( "The \"Quoted\" Book" ) );
+    }
+
+    @Test
+    public void testExportRoundTrip() throws IOException
+    {
+        BookService bookService = new BookService();
+        bookService.putBooks( IntStream
+          .range( 0, 500 )
+          .mapToObj( i -> new Book( "Book, " + i, "Author " + i % 7 ) )
+          .collect( Collectors.toList() ) );
+
+        for ( String fileName : List.of( "export.csv", "export.ndjson" ) )
+        {
+            Path file = tempDir.resolve( fileName );
+            assertThat( new BookExporter( bookService ).exportFile( file ), is( 500L ) );
+
+            BookService imported = new BookService();
+            new BookImporter( imported, ForkJoinPool.commonPool(), CHUNK_SIZE ).importFile( file );
+
+            //versions are local to each store, so only the catalogue itself has to survive the round trip
+            Map<UUID, String> expected = bookService.getBooks( null, null ).stream().collect( Collectors.toMap( Book::getId, BookBulkTest::describe ) );
+            Map<UUID, String> actual = imported.getBooks( null, null ).stream().collect( Collectors.toMap( Book::getId, BookBulkTest::describe ) );
+            assertThat( actual, is( expected ) );
+        }
+    }
+
+    @Test
+    public void testCsvExportRejectsLineBreaks() throws IOException
+    {
+        BookService bookService = new BookService();
+        bookService.putBooks( List.of( new Book( "First line\nSecond line", "Author" ) ) );
+
+        assertThrows( IllegalArgumentException.class, () -> new BookExporter( bookService ).exportFile( tempDir.resolve( "export.csv" ) ) );
+
+        //NDJSON escapes line breaks, so the same book survives a round trip there
+        Path file = tempDir.resolve( "export.ndjson" );
+        new BookExporter( bookService ).exportFile( file );
+
+        BookService imported = new BookService();
+        new BookImporter( imported, ForkJoinPool.commonPool(), CHUNK_SIZE ).importFile( file );
+        assertThat( imported.getBooks( null, null ).get( 0 ).getName(), is( "First line\nSecond line" ) );
+    }
+
+    private static String describe( Book book )
+    {
+        return book.getName() + " by " + book.getAuthor();
+    }
+}
@@ -2,6 +2,7 @@ package com.github.j0rdanit0;
 
 import com.github.j0rdanit0.domain.Book;
 import com.github.j0rdanit0.domain.BookRequest;
+import com.github.j0rdanit0.format.ResponseFormat;
 import com.github.j0rdanit0.service.BookService;
 import com.github.j0rdanit0.verticle.BookListener;
 import com.github.j0rdanit0.verticle.BookRouter;
@@ -27,10 +28,17 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -90,8 +98,8 @@ public class BookRouterTest
         )
            .entrySet()
            .stream()
-           .map( entry -> new Book( entry.getKey(), entry.getValue() ) )
-           .forEach( book -> BookService.BOOKS.put( book.getId(), book ) );
+           .map( entry -> new BookRequest( entry.getKey(), entry.getValue() ) )
+           .forEach( BookService.getInstance()::createBook );
     }
 
     @Test
@@ -100,7 +108,7 @@ public class BookRouterTest
         WebClientOptions options = new WebClientOptions().setDefaultPort( config.getInteger( "port" ) );
         WebClient webClient = WebClient.create( vertx, options );
 
-        int originalSize = BookService.BOOKS.size();
+        int originalSize = BookService.getInstance().getBooks( null, null ).size();
 
         createBook( webClient, "change", "me" )
           .compose( response -> editBook( webClient, response.bodyAsJson( Book.class ), "Now What?", "Charles D. Morgan" ) )
@@ -120,7 +128,7 @@ public class BookRouterTest
 
     private Future<HttpResponse<Buffer>> editBook( WebClient webClient, Book book, String name, String author )
     {
-        Book existingBook = BookService.getBook( book.getId() );
+        Book existingBook = BookService.getInstance().getBook( book.getId() );
         assertThat( existingBook != null, is( true ) );
 
         return webClient.put( buildRequestURI( book.getId().toString() ) ).sendJson( new BookRequest( name, author ) );
@@ -128,7 +136,7 @@ public class BookRouterTest
 
     private Future<HttpResponse<Buffer>> getBook( WebClient webClient, UUID id )
     {
-        Book book = BookService.getBook( id );
+        Book book = BookService.getInstance().getBook( id );
         assertThat( book != null, is( true ) );
         assertThat( book.getName(), is( "Now What?" ) );
         assertThat( book.getAuthor(), is( "Charles D. Morgan" ) );
@@ -179,6 +187,248 @@ public class BookRouterTest
         } ) );
     }
 
+    public static Stream<Arguments> getBooksLimitTestData()
+    {
+        return Stream.of(
+          Arguments.of( "1", 200 ),
+          Arguments.of( "2", 200 ),
+          Arguments.of( "1000", 200 ),
+          Arguments.of( "0", 400 ),
+          Arguments.of( "not-a-number", 400 )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "getBooksLimitTestData" )
+    public void testGetBooksLimit( String limit, int expectedStatusCode, Vertx vertx, VertxTestContext testContext )
+    {
+        WebClient
+          .create( vertx )
+          .get( buildRequestURI() )
+          .port( config.getInteger( "port" ) )
+          .addQueryParam( "limit", limit )
+          .send( testContext.succeeding( response -> {
+              assertThat( response.statusCode(), is( expectedStatusCode ) );
+
+              if ( expectedStatusCode == 200 )
+              {
+                  int expectedSize = Math.min( Integer.parseInt( limit ), BookService.getInstance().getBooks( null, null ).size() );
+                  assertThat( response.bodyAsJsonArray().size(), is( expectedSize ) );
+                  assertThat( response.getHeader( "X-Matched" ), is( String.valueOf( expectedSize ) ) );
+                  assertThat( Integer.parseInt( response.getHeader( "X-Scanned" ) ) >= expectedSize, is( true ) );
+              }
+
+              testContext.completeNow();
+          } ) );
+    }
+
+    @Test
+    public void testCoalescedGetBooks( Vertx vertx, VertxTestContext testContext )
+    {
+        WebClient webClient = WebClient.create( vertx, new WebClientOptions().setDefaultPort( config.getInteger( "port" ) ) );
+        String metricsURI = config.getString( "apiBase" ) + "/admin/coalescing";
+
+        //whether a given burst actually overlaps depends on timing, so RequestCoalescerTest covers the coalescing itself;
+        //this checks that every read goes through the coalescer and that all callers get the same listing
+        webClient
+          .get( metricsURI )
+          .send()
+          .compose( before -> {
+              List<Future<HttpResponse<Buffer>>> responses = IntStream
+                .range( 0, 20 )
+                .mapToObj( i -> webClient.get( buildRequestURI() ).addQueryParam( "author", "J. K. Rowling" ).send() )
+                .collect( Collectors.toList() );
+
+              return CompositeFuture
+                .all( new ArrayList<>( responses ) )
+                .compose( all -> webClient.get( metricsURI ).send() )
+                .map( after -> {
+                    Buffer expectedBody = responses.get( 0 ).result().body();
+                    for ( Future<HttpResponse<Buffer>> response : responses )
+                    {
+                        assertThat( response.result().statusCode(), is( 200 ) );
+                        assertThat( response.result().body(), is( expectedBody ) );
+                    }
+
+                    long requests = after.bodyAsJsonObject().getLong( "requests" ) - before.bodyAsJsonObject().getLong( "requests" );
+                    assertThat( requests, is( (long) responses.size() ) );
+                    return after;
+                } );
+          } )
+          .onComplete( testContext.succeedingThenComplete() );
+    }
+
+    @Test
+    public void testServerTiming( Vertx vertx, VertxTestContext testContext )
+    {
+        WebClient webClient = WebClient.create( vertx, new WebClientOptions().setDefaultPort( config.getInteger( "port" ) ) );
+
+        webClient
+          .get( buildRequestURI() )
+          .putHeader( "X-Server-Timing", "true" )
+          .send()
+          .compose( response -> {
+              String serverTiming = response.getHeader( "Server-Timing" );
+              assertThat( serverTiming != null, is( true ) );
+              for ( String span : List.of( "parse", "queue", "service", "serialize", "reply", "total" ) )
+              {
+                  assertThat( serverTiming, serverTiming.contains( span + ";dur=" ), is( true ) );
+              }
+
+              //the test config records every request as slow
+              return webClient.get( config.getString( "apiBase" ) + "/admin/traces" ).send();
+          } )
+          .onComplete( testContext.succeeding( traces -> {
+              assertThat( traces.statusCode(), is( 200 ) );
+
+              JsonObject trace = traces.bodyAsJsonArray().getJsonObject( 0 );
+              assertThat( trace.getString( "path" ), is( buildRequestURI() ) );
+              assertThat( trace.getJsonObject( "spans" ).containsKey( "write" ), is( true ) );
+
+              testContext.completeNow();
+          } ) );
+    }
+
+    @Test
+    public void testServerTimingOnFailure( Vertx vertx, VertxTestContext testContext )
+    {
+        //a failed reply carries no listener timings, so none of its time may be blamed on delivering the reply
+        WebClient
+          .create( vertx )
+          .get( buildRequestURI( UUID.randomUUID().toString() ) )
+          .port( config.getInteger( "port" ) )
+          .putHeader( "X-Server-Timing", "true" )
+          .send( testContext.succeeding( response -> {
+              assertThat( response.statusCode(), is( 404 ) );
+
+              String serverTiming = response.getHeader( "Server-Timing" );
+              assertThat( serverTiming, serverTiming.contains( "unattributed;dur=" ), is( true ) );
+              assertThat( serverTiming, serverTiming.contains( "reply;dur=" ), is( false ) );
+
+              testContext.completeNow();
+          } ) );
+    }
+
+    public static Stream<Arguments> getStatsTestData()
+    {
+        return Stream.of(
+          Arguments.of( null, null, 200 ),
+          Arguments.of( "J. R. R. Tolkien", null, 200 ),
+          Arguments.of( null, "2", 200 ),
+          Arguments.of( null, "0", 400 ),
+          Arguments.of( null, "not-a-number", 400 )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "getStatsTestData" )
+    public void testGetStats( String author, String top, int expectedStatusCode, Vertx vertx, VertxTestContext testContext )
+    {
+        HttpRequest<Buffer> request = WebClient
+          .create( vertx )
+          .get( buildRequestURI( "_stats" ) )
+          .port( config.getInteger( "port" ) );
+
+        Optional.ofNullable( author ).ifPresent( x -> request.addQueryParam( "author", author ) );
+        Optional.ofNullable( top ).ifPresent( x -> request.addQueryParam( "top", top ) );
+
+        request.send( testContext.succeeding( response -> {
+            assertThat( response.statusCode(), is( expectedStatusCode ) );
+
+            if ( expectedStatusCode == 200 )
+            {
+                List<Book> books = BookService.getInstance().getBooks( null, null );
+                JsonObject stats = response.bodyAsJsonObject();
+                assertThat( stats.getLong( "total" ), is( (long) books.size() ) );
+                assertThat( stats.getLong( "authors" ), is( books.stream().map( Book::getAuthor ).distinct().count() ) );
+
+                if ( author != null )
+                {
+                    long expectedCount = books.stream().filter( book -> book.getAuthor().equals( author ) ).count();
+                    assertThat( stats.getJsonObject( "author" ).getLong( "count" ), is( expectedCount ) );
+                }
+
+                if ( top != null )
+                {
+                    JsonArray topAuthors = stats.getJsonArray( "top" );
+                    assertThat( topAuthors.size() <= Integer.parseInt( top ), is( true ) );
+                    assertThat( topAuthors.getJsonObject( 0 ).getLong( "count" ) >= topAuthors.getJsonObject( topAuthors.size() - 1 ).getLong( "count" ), is( true ) );
+                }
+            }
+
+            testContext.completeNow();
+        } ) );
+    }
+
+    public static Stream<Arguments> getBooksRepresentationTestData()
+    {
+        return Stream.of(
+          Arguments.of( null, null, 200, "application/json" ),
+          Arguments.of( "application/cbor", null, 200, "application/cbor" ),
+          Arguments.of( "application/x-jackson-smile", null, 200, "application/x-jackson-smile" ),
+          Arguments.of( "application/x-jackson-smile", "id,name", 200, "application/x-jackson-smile" ),
+          Arguments.of( "application/x-msgpack", null, 200, "application/x-msgpack" ),
+          Arguments.of( "application/x-msgpack;q=0.9, application/json;q=0.5", "id", 200, "application/x-msgpack" ),
+          Arguments.of( "text/html, */*;q=0.1", "name,author", 200, "application/json" ),
+          Arguments.of( "text/html", null, 406, null ),
+          Arguments.of( null, "id,isbn", 400, null )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "getBooksRepresentationTestData" )
+    public void testGetBooksRepresentation( String accept, String fields, int expectedStatusCode, String expectedContentType, Vertx vertx, VertxTestContext testContext )
+    {
+        HttpRequest<Buffer> request = WebClient
+          .create( vertx )
+          .get( buildRequestURI() )
+          .port( config.getInteger( "port" ) );
+
+        Optional.ofNullable( accept ).ifPresent( x -> request.putHeader( "Accept", accept ) );
+        Optional.ofNullable( fields ).ifPresent( x -> request.addQueryParam( "fields", fields ) );
+
+        request.send( testContext.succeeding( response -> {
+            assertThat( response.statusCode(), is( expectedStatusCode ) );
+
+            if ( expectedStatusCode == 200 )
+            {
+                assertThat( response.getHeader( "Content-Type" ), is( expectedContentType ) );
+
+                JsonArray books = decode( ResponseFormat.negotiate( expectedContentType ).orElseThrow(), response.body() );
+                assertThat( books.size(), is( BookService.getInstance().getBooks( null, null ).size() ) );
+
+                Set<String> expectedFields = fields == null ? Set.of( "id", "name", "author", "version" ) : Set.of( fields.split( "," ) );
+                assertThat( books.getJsonObject( 0 ).fieldNames(), is( expectedFields ) );
+
+                //ids have to be the same textual UUIDs whatever the format or projection
+                if ( expectedFields.contains( "id" ) )
+                {
+                    Set<String> expectedIds = BookService.getInstance().getBooks( null, null ).stream().map( book -> book.getId().toString() ).collect( Collectors.toSet() );
+                    for ( int i = 0; i < books.size(); i++ )
+                    {
+                        Object id = books.getJsonObject( i ).getValue( "id" );
+                        assertThat( id instanceof String, is( true ) );
+                        assertThat( expectedIds.contains( id ), is( true ) );
+                    }
+                }
+            }
+
+            testContext.completeNow();
+        } ) );
+    }
+
+    private static JsonArray decode( ResponseFormat format, Buffer body )
+    {
+        try
+        {
+            return new JsonArray( format.getMapper().readValue( body.getBytes(), List.class ) );
+        }
+        catch ( IOException exception )
+        {
+            throw new UncheckedIOException( exception );
+        }
+    }
+
     public static Stream<Arguments> createBookTestData()
     {
         return Stream.of(
@@ -236,7 +486,7 @@ public class BookRouterTest
               if ( expectedStatusCode == 200 )
               {
                   Book responseBook = response.bodyAsJson( Book.class );
-                  Book expectedBook = BookService.BOOKS.get( UUID.fromString( id ) );
+                  Book expectedBook = BookService.getInstance().getBook( UUID.fromString( id ) );
 
                   assertThat( expectedBook != null, is( true ) );
                   assertThat( responseBook != null, is( true ) );
@@ -276,7 +526,7 @@ public class BookRouterTest
               if ( expectedStatusCode == 200 )
               {
                   Book responseBook = response.bodyAsJson( Book.class );
-                  Book expectedBook = BookService.BOOKS.get( UUID.fromString( id ) );
+                  Book expectedBook = BookService.getInstance().getBook( UUID.fromString( id ) );
 
                   assertThat( expectedBook != null, is( true ) );
                   assertThat( responseBook != null, is( true ) );
@@ -313,7 +563,7 @@ public class BookRouterTest
 
               if ( expectedStatusCode == 200 )
               {
-                  assertThat( BookService.BOOKS.get( UUID.fromString( id ) ) == null, is( true ) );
+                  assertThat( BookService.getInstance().getBook( UUID.fromString( id ) ) == null, is( true ) );
               }
 
               testContext.completeNow();
@@ -332,8 +582,9 @@ public class BookRouterTest
 
     private static UUID findBookId( Predicate<Book> predicate )
     {
-        return BookService.BOOKS
-          .values()
+        return BookService
+          .getInstance()
+          .getBooks( null, null )
           .stream()
           .filter( predicate )
           .findFirst()
@@ -0,0 +1,69 @@
+package com.github.j0rdanit0;
+
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.service.BookScanner;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BookScannerTest
+{
+    //a low threshold and small segments push even this catalogue through the parallel path
+    private static final BookScanner SCANNER = new BookScanner( ForkJoinPool.commonPool(), 1_000, 256 );
+
+    private static final List<Book> BOOKS = IntStream
+      .range( 0, 50_000 )
+      .mapToObj( i -> new Book( ( i % 3 == 0 ? "Harry Potter " : "The Hobbit " ) + i, i % 5 == 0 ? "J. K. Rowling" : "J. R. R. Tolkien" ) )
+      .collect( Collectors.toList() );
+
+    public static Stream<Arguments> scanTestData()
+    {
+        return Stream.of(
+          Arguments.of( null, null, Integer.MAX_VALUE ),
+          Arguments.of( "harry POTTER", null, Integer.MAX_VALUE ),
+          Arguments.of( null, "rowling", Integer.MAX_VALUE ),
+          Arguments.of( "potter", "ROWLING", Integer.MAX_VALUE ),
+          Arguments.of( "potter", "rowling", 10 ),
+          Arguments.of( "Silmarillion", null, 10 )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource( "scanTestData" )
+    public void testScan( String name, String author, int limit )
+    {
+        Set<UUID> expected = BOOKS
+          .stream()
+          .filter( book -> name == null || book.getName().toUpperCase().contains( name.toUpperCase() ) )
+          .filter( book -> author == null || book.getAuthor().toUpperCase().contains( author.toUpperCase() ) )
+          .map( Book::getId )
+          .collect( Collectors.toSet() );
+
+        BookScanner.ScanResult result = SCANNER.scan( BOOKS, name, author, limit );
+        Set<UUID> actual = result.getBooks().stream().map( Book::getId ).collect( Collectors.toSet() );
+
+        assertThat( result.getMatched(), is( (long) actual.size() ) );
+        assertThat( actual.size(), is( Math.min( limit, expected.size() ) ) );
+        assertThat( expected.containsAll( actual ), is( true ) );
+
+        if ( limit < expected.size() )
+        {
+            assertThat( "limit should stop the scan early", result.getScanned() < BOOKS.size(), is( true ) );
+        }
+        else
+        {
+            assertThat( result.getScanned(), is( (long) BOOKS.size() ) );
+        }
+    }
+}
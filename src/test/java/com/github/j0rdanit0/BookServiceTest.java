@@ -0,0 +1,165 @@
+package com.github.j0rdanit0;
+
+import com.github.j0rdanit0.domain.AuthorCount;
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.domain.BookRequest;
+import com.github.j0rdanit0.domain.BookSnapshot;
+import com.github.j0rdanit0.domain.BookStats;
+import com.github.j0rdanit0.service.BookService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BookServiceTest
+{
+    @Test
+    public void testEditsAreNeverTorn() throws InterruptedException
+    {
+        BookService bookService = new BookService();
+        List<UUID> ids = IntStream
+          .range( 0, 100 )
+          .mapToObj( i -> bookService.createBook( new BookRequest( "name 0", "author 0" ) ).getId() )
+          .collect( Collectors.toList() );
+
+        //every edit changes name and author together, so a reader must never see them disagree
+        AtomicBoolean writing = new AtomicBoolean( true );
+        Thread writer = new Thread( () -> {
+            for ( int i = 1; i <= 200; i++ )
+            {
+                for ( UUID id : ids )
+                {
+                    bookService.editBook( id, new BookRequest( "name " + i, "author " + i ) );
+                }
+            }
+            writing.set( false );
+        } );
+        writer.start();
+
+        while ( writing.get() )
+        {
+            for ( Book book : bookService.getBooks( null, null ) )
+            {
+                assertThat( book.getName().substring( 5 ), is( book.getAuthor().substring( 7 ) ) );
+            }
+        }
+
+        writer.join();
+        assertThat( bookService.getBook( ids.get( 0 ) ).getName(), is( "name 200" ) );
+    }
+
+    @Test
+    public void testSnapshotsArePointInTime() throws InterruptedException
+    {
+        BookService bookService = new BookService();
+
+        //one writer keeps adding and removing books; a snapshot must hold exactly the books committed at its sequence
+        AtomicBoolean writing = new AtomicBoolean( true );
+        Thread writer = new Thread( () -> {
+            for ( int i = 0; i < 5_000; i++ )
+            {
+                Book book = bookService.createBook( new BookRequest( "name " + i, "author" ) );
+                if ( i % 2 == 1 )
+                {
+                    bookService.removeBook( book.getId() );
+                }
+            }
+            writing.set( false );
+        } );
+        writer.start();
+
+        while ( writing.get() )
+        {
+            BookSnapshot snapshot = bookService.getSnapshot();
+
+            //every pair of iterations commits create, create, remove: one book per three sequences, plus the partial pair
+            long sequence = snapshot.getSequence();
+            long expectedBooks = sequence / 3 + sequence % 3;
+            assertThat( (long) snapshot.getBooks().size(), is( expectedBooks ) );
+
+            for ( Book book : snapshot.getBooks() )
+            {
+                assertThat( book.getVersion() <= sequence, is( true ) );
+            }
+        }
+
+        writer.join();
+    }
+
+    @Test
+    public void testStatsFollowEveryEdit()
+    {
+        BookService bookService = new BookService();
+        Book hobbit = bookService.createBook( new BookRequest( "The Hobbit", "Tolkien" ) );
+        Book silmarillion = bookService.createBook( new BookRequest( "The Silmarillion", "Tolkien" ) );
+        Book emma = bookService.createBook( new BookRequest( "Emma", "Austen" ) );
+        Book dune = bookService.createBook( new BookRequest( "Dune", "Herbert" ) );
+
+        //ties in the ranking are broken by author name
+        assertStats( bookService, 4, Map.of( "Tolkien", 2L, "Austen", 1L, "Herbert", 1L ), List.of( "Tolkien", "Austen", "Herbert" ) );
+
+        //moving Herbert's only book to Austen takes Herbert out of the stats altogether
+        bookService.editBook( dune.getId(), new BookRequest( null, "Austen" ) );
+        assertStats( bookService, 4, Map.of( "Tolkien", 2L, "Austen", 2L, "Herbert", 0L ), List.of( "Austen", "Tolkien" ) );
+
+        bookService.editBook( emma.getId(), new BookRequest( "Pride and Prejudice", null ) );
+        assertStats( bookService, 4, Map.of( "Tolkien", 2L, "Austen", 2L ), List.of( "Austen", "Tolkien" ) );
+
+        bookService.removeBook( hobbit.getId() );
+        assertStats( bookService, 3, Map.of( "Tolkien", 1L, "Austen", 2L ), List.of( "Austen", "Tolkien" ) );
+
+        bookService.removeBook( silmarillion.getId() );
+        assertStats( bookService, 2, Map.of( "Tolkien", 0L, "Austen", 2L ), List.of( "Austen" ) );
+    }
+
+    private static void assertStats( BookService bookService, long total, Map<String, Long> counts, List<String> ranking )
+    {
+        BookStats stats = bookService.getStats( null, 10 );
+        assertThat( stats.getTotal(), is( total ) );
+        assertThat( stats.getAuthors(), is( (long) ranking.size() ) );
+        assertThat( stats.getTop().stream().map( AuthorCount::getAuthor ).collect( Collectors.toList() ), is( ranking ) );
+
+        counts.forEach( ( author, count ) -> assertThat( author, bookService.getStats( author, null ).getAuthor().getCount(), is( count ) ) );
+    }
+
+    @Test
+    public void testReadersNeverSeeAStoreBeingReplaced() throws InterruptedException
+    {
+        BookService bookService = new BookService();
+        List<Book> books = IntStream
+          .range( 0, 100 )
+          .mapToObj( i -> bookService.createBook( new BookRequest( "name " + i, "author " + i % 7 ) ) )
+          .collect( Collectors.toList() );
+        UUID id = books.get( 0 ).getId();
+
+        //every snapshot holds the same catalogue: equal ones are no-ops, lower ones rebuild the store from scratch
+        AtomicBoolean writing = new AtomicBoolean( true );
+        Thread writer = new Thread( () -> {
+            while ( bookService.getSequence() > 1 )
+            {
+                long sequence = bookService.getSequence();
+                bookService.applySnapshot( new BookSnapshot( sequence, books ) );
+                bookService.applySnapshot( new BookSnapshot( sequence - 1, books ) );
+            }
+            writing.set( false );
+        } );
+        writer.start();
+
+        while ( writing.get() )
+        {
+            assertThat( bookService.getBooks( null, null ).size(), is( books.size() ) );
+            assertThat( bookService.getBook( id ) != null, is( true ) );
+        }
+
+        writer.join();
+        assertThat( bookService.getStats( null, null ).getTotal(), is( (long) books.size() ) );
+        assertThat( bookService.getStats( null, null ).getAuthors(), is( 7L ) );
+    }
+}
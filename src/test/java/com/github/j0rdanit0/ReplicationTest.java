@@ -0,0 +1,142 @@
+package com.github.j0rdanit0;
+
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.domain.BookRequest;
+import com.github.j0rdanit0.service.BookService;
+import com.github.j0rdanit0.verticle.BookListener;
+import com.github.j0rdanit0.verticle.BookRouter;
+import com.github.j0rdanit0.verticle.ReplicationPrimary;
+import com.github.j0rdanit0.verticle.ReplicationReplica;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@ExtendWith( VertxExtension.class )
+public class ReplicationTest
+{
+    private static final String API_BASE = "/api/library";
+    private static final int PRIMARY_PORT = 8081;
+    private static final int REPLICA_PORT = 8082;
+    private static final int REPLICATION_PORT = 9091;
+
+    //each node gets its own Vertx instance and its own store, just like two separate processes would
+    private static Vertx primaryVertx;
+    private static Vertx replicaVertx;
+
+    @BeforeAll
+    public static void beforeAll( VertxTestContext testContext )
+    {
+        primaryVertx = Vertx.vertx();
+        replicaVertx = Vertx.vertx();
+
+        BookService primaryStore = new BookService();
+        BookService replicaStore = new BookService();
+
+        DeploymentOptions primaryOptions = new DeploymentOptions().setConfig( new JsonObject()
+          .put( "port", PRIMARY_PORT )
+          .put( "apiBase", API_BASE )
+          .put( "replicationPort", REPLICATION_PORT ) );
+
+        DeploymentOptions replicaOptions = new DeploymentOptions().setConfig( new JsonObject()
+          .put( "port", REPLICA_PORT )
+          .put( "apiBase", API_BASE )
+          .put( "replicationRole", "replica" )
+          .put( "replicationHost", "localhost" )
+          .put( "replicationPort", REPLICATION_PORT ) );
+
+        CompositeFuture
+          .all(
+            primaryVertx.deployVerticle( new BookRouter(), primaryOptions ),
+            primaryVertx.deployVerticle( new BookListener( primaryStore ), primaryOptions ),
+            primaryVertx.deployVerticle( new ReplicationPrimary( primaryStore ), primaryOptions ),
+            replicaVertx.deployVerticle( new BookRouter(), replicaOptions ),
+            replicaVertx.deployVerticle( new BookListener( replicaStore ), replicaOptions ),
+            replicaVertx.deployVerticle( new ReplicationReplica( replicaStore ), replicaOptions )
+          )
+          .onComplete( testContext.succeedingThenComplete() );
+    }
+
+    @AfterAll
+    public static void afterAll( VertxTestContext testContext )
+    {
+        CompositeFuture
+          .all( replicaVertx.close(), primaryVertx.close() )
+          .onComplete( testContext.succeedingThenComplete() );
+    }
+
+    @Test
+    public void testReadYourWrites( VertxTestContext testContext )
+    {
+        WebClient webClient = WebClient.create( primaryVertx );
+
+        webClient
+          .post( PRIMARY_PORT, "localhost", API_BASE + "/books/" )
+          .sendJson( new BookRequest( "Dune", "Frank Herbert" ) )
+          .compose( created -> {
+              assertThat( created.statusCode(), is( 200 ) );
+              Book book = created.bodyAsJson( Book.class );
+
+              return webClient
+                .get( REPLICA_PORT, "localhost", API_BASE + "/books/" + book.getId() )
+                .putHeader( "X-Min-Sequence", created.getHeader( "X-Sequence" ) )
+                .send();
+          } )
+          .onComplete( testContext.succeeding( response -> {
+              assertThat( response.statusCode(), is( 200 ) );
+              assertThat( response.bodyAsJson( Book.class ).getName(), is( "Dune" ) );
+              assertThat( response.bodyAsJson( Book.class ).getAuthor(), is( "Frank Herbert" ) );
+
+              testContext.completeNow();
+          } ) );
+    }
+
+    @Test
+    public void testReplicaRejectsWrites( VertxTestContext testContext )
+    {
+        WebClient
+          .create( replicaVertx )
+          .post( REPLICA_PORT, "localhost", API_BASE + "/books/" )
+          .sendJson( new BookRequest( "name", "author" ), testContext.succeeding( response -> {
+              assertThat( response.statusCode(), is( 405 ) );
+
+              testContext.completeNow();
+          } ) );
+    }
+
+    @Test
+    public void testReplicationLag( VertxTestContext testContext )
+    {
+        WebClient webClient = WebClient.create( primaryVertx );
+
+        webClient
+          .post( PRIMARY_PORT, "localhost", API_BASE + "/books/" )
+          .sendJson( new BookRequest( "Emma", "Jane Austen" ) )
+          .compose( created -> webClient
+            .get( REPLICA_PORT, "localhost", API_BASE + "/books/" )
+            .putHeader( "X-Min-Sequence", created.getHeader( "X-Sequence" ) )
+            .send()
+            .compose( caughtUp -> webClient.get( REPLICA_PORT, "localhost", API_BASE + "/admin/replication" ).send() )
+            .map( status -> {
+                JsonObject jsonObject = status.bodyAsJsonObject();
+                assertThat( jsonObject.getString( "role" ), is( "replica" ) );
+                assertThat( jsonObject.getLong( "appliedSequence" ) >= Long.parseLong( created.getHeader( "X-Sequence" ) ), is( true ) );
+                assertThat( jsonObject.getLong( "sequenceLag" ) >= 0, is( true ) );
+
+                //time-based lag must not stick at its last value once the replica has caught up
+                assertThat( jsonObject.getLong( "sequenceLag" ) > 0 || jsonObject.getLong( "lagMillis" ) == 0, is( true ) );
+                return status;
+            } ) )
+          .onComplete( testContext.succeedingThenComplete() );
+    }
+}
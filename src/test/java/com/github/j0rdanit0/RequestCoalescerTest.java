@@ -0,0 +1,93 @@
+package com.github.j0rdanit0;
+
+import com.github.j0rdanit0.eventbus.RequestCoalescer;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@ExtendWith( VertxExtension.class )
+public class RequestCoalescerTest
+{
+    private static final String ADDRESS = "test.slow";
+    private static final long REPLY_DELAY_MILLIS = 200;
+    private static final int REQUESTS = 10;
+
+    @Test
+    public void testIdenticalRequestsShareOneReply( Vertx vertx, VertxTestContext testContext )
+    {
+        AtomicInteger deliveries = registerSlowConsumer( vertx );
+        RequestCoalescer coalescer = new RequestCoalescer( vertx, 64 );
+
+        List<Boolean> coalesced = new ArrayList<>();
+        List<Buffer> bodies = new ArrayList<>();
+
+        //the coalescer belongs to a context, and the consumer holds its reply long enough for every request to overlap
+        vertx.runOnContext( v -> {
+            for ( int i = 0; i < REQUESTS; i++ )
+            {
+                coalescer.request( ADDRESS, "key", "body", ( result, wasCoalesced ) -> testContext.verify( () -> {
+                    coalesced.add( wasCoalesced );
+                    bodies.add( result.result().body() );
+
+                    if ( bodies.size() == REQUESTS )
+                    {
+                        assertThat( deliveries.get(), is( 1 ) );
+                        assertThat( coalesced.stream().filter( x -> x ).count(), is( REQUESTS - 1L ) );
+                        assertThat( bodies.stream().distinct().count(), is( 1L ) );
+                        assertThat( coalescer.getRequestCount(), is( (long) REQUESTS ) );
+                        assertThat( coalescer.getCoalescedCount(), is( REQUESTS - 1L ) );
+
+                        testContext.completeNow();
+                    }
+                } ) );
+            }
+        } );
+    }
+
+    @Test
+    public void testSaturatedKeyIsSentSeparately( Vertx vertx, VertxTestContext testContext )
+    {
+        AtomicInteger deliveries = registerSlowConsumer( vertx );
+        RequestCoalescer coalescer = new RequestCoalescer( vertx, 3 );
+
+        AtomicInteger replies = new AtomicInteger();
+        vertx.runOnContext( v -> {
+            for ( int i = 0; i < REQUESTS; i++ )
+            {
+                coalescer.request( ADDRESS, "key", "body", ( result, wasCoalesced ) -> testContext.verify( () -> {
+                    if ( replies.incrementAndGet() == REQUESTS )
+                    {
+                        //the sent request plus two waiters fill the key, and the other seven go out on their own
+                        assertThat( coalescer.getCoalescedCount(), is( 2L ) );
+                        assertThat( deliveries.get(), is( REQUESTS - 2 ) );
+
+                        testContext.completeNow();
+                    }
+                } ) );
+            }
+        } );
+    }
+
+    private static AtomicInteger registerSlowConsumer( Vertx vertx )
+    {
+        AtomicInteger deliveries = new AtomicInteger();
+        vertx
+          .eventBus()
+          .<String>localConsumer( ADDRESS, message -> {
+              int delivery = deliveries.incrementAndGet();
+              vertx.setTimer( REPLY_DELAY_MILLIS, id -> message.reply( Buffer.buffer( "reply " + delivery ) ) );
+          } );
+
+        return deliveries;
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.j0rdanit0;
+
+import com.github.j0rdanit0.domain.Book;
+import com.github.j0rdanit0.format.Representation;
+import com.github.j0rdanit0.format.ResponseFormat;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ResponseFormatTest
+{
+    private static final Logger logger = LoggerFactory.getLogger( ResponseFormatTest.class );
+
+    private static final int BOOKS = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+
+    @Test
+    public void benchmarkListingEncoding()
+    {
+        List<Book> books = IntStream
+          .range( 0, BOOKS )
+          .mapToObj( i -> new Book( "Harry Potter and the Listing of " + i, "Author " + i % 100 ) )
+          .collect( Collectors.toList() );
+
+        for ( List<String> fields : Arrays.asList( null, List.of( "id", "name" ) ) )
+        {
+            int jsonSize = benchmark( new Representation( ResponseFormat.JSON, fields ), books );
+            for ( ResponseFormat format : List.of( ResponseFormat.CBOR, ResponseFormat.SMILE, ResponseFormat.MSGPACK ) )
+            {
+                int size = benchmark( new Representation( format, fields ), books );
+                assertThat( format + " should be smaller than JSON", size < jsonSize, is( true ) );
+            }
+        }
+    }
+
+    private static int benchmark( Representation representation, List<Book> books )
+    {
+        int size = 0;
+        for ( int i = 0; i < WARMUP_ROUNDS; i++ )
+        {
+            size = representation.encode( books ).length();
+        }
+
+        long start = System.nanoTime();
+        for ( int i = 0; i < MEASURED_ROUNDS; i++ )
+        {
+            size = representation.encode( books ).length();
+        }
+        double averageMillis = ( System.nanoTime() - start ) / 1_000_000.0 / MEASURED_ROUNDS;
+
+        logger.info( String.format( "%-8s fields=%-8s %,10d bytes %8.2f ms/encode", representation.getFormat(), representation.getFields(), size, averageMillis ) );
+        return size;
+    }
+}